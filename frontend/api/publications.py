@@ -1,6 +1,10 @@
 import os
+import json
 import tempfile
 import subprocess
+import urllib.error
+import urllib.parse
+import urllib.request
 
 import numpy as np
 import flask
@@ -8,6 +12,14 @@ from flask import jsonify, request
 from werkzeug.utils import secure_filename
 
 
+class IngestError(Exception):
+    """A failed or rejected job of the resident parser, with its HTTP status."""
+
+    def __init__(self, message, status):
+        super().__init__(message)
+        self.status = status
+
+
 def register_publication_endpoints(app, stores, mod, config):
     store_neo4j = stores["neo4j"]
     store_postgres = stores["postgres"]
@@ -27,6 +39,23 @@ def register_publication_endpoints(app, stores, mod, config):
         return any(filename.endswith(ext) for ext in allowed_exts)
 
     def _parse_and_upload_data(filepath, config):
+        # A resident parser started with `--serve PORT` avoids a JVM per upload
+        ingest_url = config.get("INGEST_URL")
+        if ingest_url:
+            query = urllib.parse.urlencode({"path": os.path.abspath(filepath), "store_all": "true"})
+            req = urllib.request.Request(f"{ingest_url}/jobs?{query}", method="POST")
+            try:
+                with urllib.request.urlopen(req) as res:
+                    return json.load(res)["pkeys"]
+            except urllib.error.HTTPError as e:
+                # Failed jobs come back as 500 with the job's JSON, including its error
+                with e:
+                    try:
+                        message = json.load(e).get("error", e.reason)
+                    except ValueError:
+                        message = e.reason
+                raise IngestError(message, e.code)
+
         args = [
             "java",
             "-jar",
@@ -107,7 +136,10 @@ def register_publication_endpoints(app, stores, mod, config):
                     filepath = os.path.join(tmpdirname, filename)
                     file.save(filepath)
 
-                    res = _upload_data(filepath, config)
+                    try:
+                        res = _upload_data(filepath, config)
+                    except IngestError as e:
+                        return jsonify({"error": str(e)}), e.status
 
                 return jsonify({"result": res})
 
@@ -142,6 +174,9 @@ def register_publication_endpoints(app, stores, mod, config):
                 filepath = os.path.join(tmpdirname, filename)
                 file.save(filepath)
 
-                res = _upload_data_only(filepath, config)
+                try:
+                    res = _upload_data_only(filepath, config)
+                except IngestError as e:
+                    return jsonify({"error": str(e)}), e.status
 
             return jsonify({"result": res})
@@ -0,0 +1,74 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+
+import org.dblp.mmdb.*;
+
+/**
+ * Fixed-size slices of the DBLP XML file given by the {@code dblp.xml} and
+ * {@code dblp.dtd} system properties, shared by the benchmarks.
+ */
+@SuppressWarnings("javadoc")
+class BenchmarkData {
+    private static final Pattern RECORD_END = Pattern.compile(
+            "</(article|inproceedings|proceedings|book|incollection|phdthesis|mastersthesis|www|person|data)>");
+
+    static {
+        System.setProperty("entityExpansionLimit", "10000000");
+    }
+
+    static Path xmlPath() {
+        return Paths.get(System.getProperty("dblp.xml", "data/dblp.xml"));
+    }
+
+    static Path dtdPath() {
+        return Paths.get(System.getProperty("dblp.dtd", "data/dblp.dtd"));
+    }
+
+    /**
+     * Returns the XML header, the first {@code numRecords} records and the
+     * closing root tag of the DBLP XML file; the whole file if it has fewer
+     * records.
+     */
+    static byte[] slice(int numRecords) throws IOException {
+        StringBuilder xml = new StringBuilder();
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(xmlPath(), StandardCharsets.ISO_8859_1)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (count >= numRecords) {
+                    xml.append("</dblp>\n");
+                    break;
+                }
+                xml.append(line).append('\n');
+                Matcher m = RECORD_END.matcher(line);
+                while (m.find()) {
+                    count++;
+                }
+            }
+        }
+        return xml.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    static byte[] dtd() throws IOException {
+        return Files.readAllBytes(dtdPath());
+    }
+
+    static Mmdb mmdb(byte[] xml, byte[] dtd) throws IOException, org.xml.sax.SAXException {
+        PrintStream originalErr = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return new Mmdb(new ByteArrayInputStream(xml), new ByteArrayInputStream(dtd), false);
+        } finally {
+            System.setErr(originalErr);
+        }
+    }
+
+    static List<Publication> publications(int numRecords) throws IOException, org.xml.sax.SAXException {
+        return new ArrayList<>(mmdb(slice(numRecords), dtd()).getPublications());
+    }
+}
@@ -0,0 +1,55 @@
+package dblpjavaparser;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.dblp.mmdb.Publication;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+/**
+ * Writing every publication of a slice into per-mdate files, as
+ * {@link DataSplitter} does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("javadoc")
+public class DataSplitterBenchmark {
+    @Param({ "10000" })
+    int numRecords;
+
+    @Param({ "256" })
+    int maxOpenFiles;
+
+    private List<Publication> publications;
+    private Path outputPath;
+
+    @Setup
+    public void setup() throws IOException, SAXException {
+        publications = BenchmarkData.publications(numRecords);
+    }
+
+    @Setup(Level.Invocation)
+    public void createOutputDir() throws IOException {
+        outputPath = Files.createTempDirectory("dblp-split");
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteOutputDir() throws IOException {
+        try (var paths = Files.walk(outputPath)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void appendRecords() throws IOException {
+        try (DataSplitter splitter = new DataSplitter(outputPath, maxOpenFiles)) {
+            for (Publication p : publications) {
+                splitter.append(p);
+            }
+        }
+    }
+}
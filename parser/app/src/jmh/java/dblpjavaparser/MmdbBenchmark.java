@@ -0,0 +1,38 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import org.dblp.mmdb.Mmdb;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("javadoc")
+public class MmdbBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    int numRecords;
+
+    private byte[] xml;
+    private byte[] dtd;
+
+    @Setup
+    public void setup() throws IOException {
+        xml = BenchmarkData.slice(numRecords);
+        dtd = BenchmarkData.dtd();
+    }
+
+    @Benchmark
+    public Mmdb buildMmdb() throws IOException, SAXException {
+        return BenchmarkData.mmdb(xml, dtd);
+    }
+
+    @Benchmark
+    public int streamRecords() throws IOException, SAXException {
+        int[] count = { 0 };
+        DblpRecordReader.parse(new ByteArrayInputStream(xml), BenchmarkData.dtdPath().toString(), r -> count[0]++);
+        return count[0];
+    }
+}
@@ -0,0 +1,74 @@
+package dblpjavaparser;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.dblp.mmdb.*;
+import org.neo4j.driver.Transaction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.SAXException;
+
+/**
+ * Per-publication transformation: field filtering, parameter maps, Cypher
+ * string building of the per-publication path and stream key derivation.
+ * Each invocation processes every publication of the slice.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("javadoc")
+public class PublicationRowBenchmark {
+    @Param({ "10000" })
+    int numRecords;
+
+    @Param({ "false", "true" })
+    boolean storeAll;
+
+    private List<Publication> publications;
+    private List<DblpRecord> records;
+    private List<String> keys;
+    private Neo4jSink sink;
+    private Transaction tx;
+
+    @Setup
+    public void setup() throws IOException, SAXException {
+        publications = BenchmarkData.publications(numRecords);
+        records = publications.stream().map(DblpRecord::of).toList();
+        keys = publications.stream().map(Publication::getKey).toList();
+        // The driver connects lazily, so no database is needed to build queries
+        sink = new Neo4jSink("bolt://localhost:7687", "neo4j", "neo4j");
+        tx = (Transaction) Proxy.newProxyInstance(Transaction.class.getClassLoader(),
+                new Class<?>[] { Transaction.class }, (proxy, method, args) -> null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sink.close();
+    }
+
+    @Benchmark
+    public void publicationRows(Blackhole bh) {
+        for (Publication p : publications) {
+            bh.consume(PublicationRow.of(p, storeAll).toParameters());
+        }
+    }
+
+    @Benchmark
+    public void cypherPerPublication(Blackhole bh) {
+        for (DblpRecord p : records) {
+            String streamKey = PublicationRow.getStreamKey(p.getKey());
+            List<String> citedKeys = p.fields("cite").map(Field::value).toList();
+            bh.consume(sink.createPublResult(tx, p, streamKey, citedKeys, storeAll));
+        }
+    }
+
+    @Benchmark
+    public void streamKeys(Blackhole bh) {
+        for (String key : keys) {
+            bh.consume(PublicationRow.getStreamKey(key));
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package dblpjavaparser;
 
 import java.io.*;
+import java.nio.file.*;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.*;
 
 import org.dblp.mmdb.*;
-import org.neo4j.driver.*;
+import org.xml.sax.SAXException;
 
 import net.sourceforge.argparse4j.*;
 import net.sourceforge.argparse4j.impl.*;
@@ -15,152 +18,161 @@ import net.sourceforge.argparse4j.inf.*;
 @SuppressWarnings("javadoc")
 class App implements AutoCloseable {
     protected static boolean flag_store_all;
-    private final Driver driver;
-
-    private final Collection<String> FIELDS_EXCLUDED_FOR_PUBL = List.of(
-            "author", "editor", "ee", "isbn", "note",
-            "url", "cite", "crossref");
-
-    public App(String uri, String user, String password) {
-        driver = GraphDatabase.driver(uri, AuthTokens.basic(user, password));
+    private static final int STREAMING_QUEUE_CAPACITY = 10000;
+    private final GraphSink sink;
+    private ProgressJournal journal = null;
+    private NodeCache nodeCache = null;
+    private final IngestMetrics metrics = new IngestMetrics();
+
+    public App(GraphSink sink) {
+        this.sink = sink;
+        sink.setRetryListener(metrics::retried);
     }
 
     @Override
     public void close() throws Exception {
-        driver.close();
+        sink.close();
     }
 
-    public void createConstraints() {
-        try (Session session = driver.session()) {
-            session.writeTransaction(tx -> tx.run(
-                    "CREATE CONSTRAINT UniquePublicationConstraint IF NOT EXISTS " +
-                            "FOR (p:Publication) REQUIRE p.key IS UNIQUE"));
+    public IngestMetrics getMetrics() {
+        return metrics;
+    }
 
-            session.writeTransaction(tx -> tx.run(
-                    "CREATE CONSTRAINT UniqueAuthorConstraint IF NOT EXISTS " +
-                            "FOR (a:Author) REQUIRE a.name IS UNIQUE"));
+    public void setJournal(ProgressJournal journal) {
+        this.journal = journal;
+    }
 
-            session.writeTransaction(tx -> tx.run(
-                    "CREATE CONSTRAINT UniqueStreamConstraint IF NOT EXISTS " +
-                            "FOR (s:Stream) REQUIRE s.key IS UNIQUE"));
+    public void setNodeCache(NodeCache nodeCache, boolean seed) {
+        this.nodeCache = nodeCache;
+        if (seed) {
+            sink.seed(nodeCache);
+            nodeCache.reportSeeded();
         }
     }
 
-    public void createIndexes() {
-        try (Session session = driver.session()) {
-            session.writeTransaction(tx -> tx.run(
-                    "CREATE INDEX PublicationIndex IF NOT EXISTS " +
-                            "FOR (p:Publication) ON (p.key)"));
+    public void committed(Collection<String> keys) {
+        keys.forEach(key -> System.out.format("%s\n", key));
+        metrics.committed(keys.size());
+        if (journal != null) {
+            try {
+                journal.append(keys);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
 
-            session.writeTransaction(tx -> tx.run(
-                    "CREATE INDEX AuthorIndex IF NOT EXISTS " +
-                            "FOR (a:Author) ON (a.name)"));
+    public void prepare() {
+        sink.prepare();
+    }
 
-            session.writeTransaction(tx -> tx.run(
-                    "CREATE INDEX StreamIndex IF NOT EXISTS " +
-                            "FOR (s:Stream) ON (s.key)"));
-        }
+    public void addPublication(DblpRecord publ) {
+        sink.writePublication(publ, flag_store_all, metrics::transaction);
     }
 
-    private Result createPublResult(Transaction tx, Publication publ, String streamKey, Collection<String> citedKeys) {
-        Map<String, Object> params;
-        if (flag_store_all) {
-            params = publ.fields()
-                    .filter(f -> !FIELDS_EXCLUDED_FOR_PUBL.contains(f.tag()))
-                    .collect(Collectors.toMap(Field::tag, Field::value, (p1, p2) -> p1));
-            params.put("type", publ.getTag());
-        } else {
-            params = new HashMap<String, Object>();
+    public void addPublications(List<PublicationRow> rows) {
+        long startTime = System.nanoTime();
+        sink.writePublications(rows, nodeCache);
+        metrics.transaction(rows.size(), System.nanoTime() - startTime);
+        if (nodeCache != null) {
+            nodeCache.added(rows);
         }
+    }
 
-        StringBuilder query = new StringBuilder();
-        query.append("MERGE (p: Publication {key: $key})\n");
-        if (streamKey != "") {
-            query.append("MERGE (s: Stream {key: $streamKey})\n");
-            query.append("MERGE (p)-[:GROUPED_BY]->(s)\n");
-        }
+    public CompletionStage<?> addPublicationsAsync(List<PublicationRow> rows) {
+        long startTime = System.nanoTime();
+        return sink.writePublicationsAsync(rows, nodeCache)
+                .whenComplete((result, error) -> {
+                    if (error == null) {
+                        metrics.transaction(rows.size(), System.nanoTime() - startTime);
+                        if (nodeCache != null) {
+                            nodeCache.added(rows);
+                        }
+                    }
+                });
+    }
 
-        if (flag_store_all) {
-            query.append("SET ");
-            params.keySet().stream().forEach(k -> {
-                query.append("p." + k + " = ");
-                if (k.equals("year")) {
-                    query.append("toInteger(");
-                }
-                query.append("$" + k);
-                if (k.equals("year")) {
-                    query.append(")");
+    public void addCitationStubs(List<String> keys) {
+        long startTime = System.nanoTime();
+        sink.writeCitationStubs(keys);
+        metrics.transaction(keys.size(), System.nanoTime() - startTime);
+    }
+
+    public void addCitations(List<Map<String, Object>> edges) {
+        long startTime = System.nanoTime();
+        sink.writeCitations(edges);
+        metrics.transaction(edges.size(), System.nanoTime() - startTime);
+    }
+
+    public void upload(Iterator<PublicationRow> rows, int batchSize, int numWorkers, int maxInFlight) throws InterruptedException {
+        if (maxInFlight > 0) {
+            try (AsyncWriter writer = new AsyncWriter(this, maxInFlight, batchSize)) {
+                while (rows.hasNext()) {
+                    writer.submit(rows.next());
                 }
-                query.append(", ");
-            });
-            query.setLength(query.length() - 2);
-            query.append("\n");
+            }
+            return;
         }
-        params.put("key", publ.getKey());
-        if (streamKey != "") {
-            params.put("streamKey", streamKey);
+        if (numWorkers > 1) {
+            try (ParallelWriter writer = new ParallelWriter(this, numWorkers, batchSize)) {
+                while (rows.hasNext()) {
+                    writer.submit(rows.next());
+                }
+            }
+            return;
         }
 
-        if (citedKeys.size() > 0) {
-            query.append("FOREACH (key_cited IN $citedKeys |\n");
-            query.append("  MERGE (p_cited: Publication {key: key_cited})\n");
-            query.append("  MERGE (p_cited) -[:CITED_BY]-> (p))\n");
-
-            params.put("citedKeys", citedKeys);
+        List<PublicationRow> batch = new ArrayList<>(Math.max(batchSize, 1));
+        while (rows.hasNext()) {
+            batch.add(rows.next());
+            if (batch.size() >= batchSize) {
+                addPublications(batch);
+                committed(batch.stream().map(row -> row.key).toList());
+                batch.clear();
+            }
         }
-
-        return tx.run(query.toString(), params);
-    };
-
-    private Result createAuthorResult(Transaction tx, String publKey, Field authorField,
-            int authorshipOrder, int numAuthors) {
-        Map<String, Object> params = authorField.attributes()
-                .collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue(), (p1, p2) -> p1));
-
-        StringBuilder query = new StringBuilder();
-        query.append("MATCH (p: Publication {key: $publKey})\n");
-
-        query.append("MERGE (a: Author {name: $name}) ");
-        if (flag_store_all && (params.size() > 0)) {
-            query.append("SET ");
-            params.keySet().stream().forEach(k -> {
-                query.append("a." + k + " = $" + k + ", ");
-            });
-            query.setLength(query.length() - 2);
+        if (!batch.isEmpty()) {
+            addPublications(batch);
+            committed(batch.stream().map(row -> row.key).toList());
         }
-        query.append("\n");
-
-        query.append("MERGE (p) -[:AUTHORED_BY {order: $authorshipOrder, num_authors: $numAuthors}]-> (a)");
-
-        params.put("name", authorField.value());
-        params.put("publKey", publKey);
-        params.put("authorshipOrder", authorshipOrder);
-        params.put("numAuthors", numAuthors);
-
-        return tx.run(query.toString(), params);
     }
 
-    public void addPublicationToNeo4j(Publication publ) {
-        String publKey = publ.getKey();
-        String[] publKeyStrings = publKey.split("/");
-        String streamKey = (publKeyStrings.length > 2)
-                ? String.join("/", Arrays.copyOf(publKeyStrings, publKeyStrings.length - 1))
-                : "";
-        Collection<Field> authorFields = publ.getFields("author");
-        Collection<String> citedKeys = publ.fields("cite")
-                .filter(f -> !f.value().equals("..."))
-                .map(f -> f.value()).toList();
-        int numAuthors = authorFields.size();
+    private static boolean isPending(String key, String tag, String mdate, Collection<? extends Field> fields,
+            DeltaCheckpoint delta, ProgressJournal journal) {
+        // The delta check goes first so that it still records publications skipped on resume
+        if (delta != null && !delta.accept(key, tag, mdate, fields)) {
+            return false;
+        }
+        return journal == null || !journal.isCommitted(key);
+    }
 
-        try (Session session = driver.session()) {
-            session.writeTransaction(tx -> createPublResult(tx, publ, streamKey, citedKeys));
+    private static Stream<DblpRecord> publicationsOf(DblpRecords dblp, DeltaCheckpoint delta, ProgressJournal journal,
+            CitationLoader citations) {
+        if (citations == null) {
+            return dblp.publications()
+                    .filter(p -> isPending(p.getKey(), p.getTag(), p.getMdate(), p.getFields(), delta, journal));
+        }
+        // Citations are collected before the journal check, so that a resumed upload
+        // still writes the citations of publications committed before the crash
+        return dblp.publications()
+                .filter(p -> delta == null || delta.accept(p.getKey(), p.getTag(), p.getMdate(), p.getFields()))
+                .peek(p -> citations.collect(p.getKey(), p.fields("cite")))
+                .filter(p -> journal == null || !journal.isCommitted(p.getKey()));
+    }
 
-            AtomicInteger index = new AtomicInteger();
-            authorFields.stream().forEach(authorField -> {
-                int i = index.incrementAndGet();
-                session.writeTransaction(tx -> createAuthorResult(tx, publKey, authorField,
-                        i, numAuthors));
-            });
+    static Mmdb parseQuietly(String xmlFilename, String dtdFilename) throws IOException, SAXException {
+        // Parse the XML file using org.dblp.mmdb.Mmdb without messages
+        final PrintStream originalErr = System.err;
+        PrintStream filterStream = new PrintStream(new OutputStream() {
+            public void write(int b) {
+                // NO-OP
+            }
+        });
+        System.setErr(filterStream);
+        try (InputStream xml = XmlInput.open(xmlFilename); InputStream dtd = new FileInputStream(dtdFilename)) {
+            return new Mmdb(xml, dtd, false);
+        } finally {
+            System.setErr(originalErr);
         }
     }
 
@@ -171,21 +183,129 @@ class App implements AutoCloseable {
                 .defaultHelp(true)
                 .description("Parse the DBLP XML file and upload to Neo4j");
 
+        // Defaults come from the frontend's NEO4J_* settings when they are in the environment
+        Map<String, String> env = System.getenv();
         parser.addArgument("--host")
-                .setDefault("bolt://ccsl1.snu.ac.kr:54010")
-                .help("Host URI for the Neo4J database to upload.");
+                .setDefault(env.getOrDefault("NEO4J_HOST", "bolt://ccsl1.snu.ac.kr:54010"))
+                .help("Host URI for the Neo4J database to upload (or NEO4J_HOST).");
         parser.addArgument("--user")
-                .setDefault("neo4j")
-                .help("Username of the Neo4J database");
+                .setDefault(env.getOrDefault("NEO4J_USER", "neo4j"))
+                .help("Username of the Neo4J database (or NEO4J_USER)");
         parser.addArgument("--password")
-                .setDefault("bkmsneo4j")
-                .help("Password of the Neo4J database");
+                .help("Password of the Neo4J database (default: NEO4J_PASS, or bkmsneo4j)");
+        parser.addArgument("--sink")
+                .choices("neo4j", "memory", "noop")
+                .setDefault("neo4j")
+                .help("Where to write the graph: Neo4j, an in-memory graph, or nowhere");
         parser.addArgument("--store-all")
                 .dest("store_all")
                 .action(Arguments.storeTrue())
                 .help("Whether to store all properties into Neo4j");
+        parser.addArgument("--batch-size")
+                .dest("batch_size")
+                .type(Integer.class)
+                .setDefault(1)
+                .help("Number of publications to upload per transaction (1 uploads them one by one)");
+        parser.addArgument("--workers")
+                .type(Integer.class)
+                .setDefault(1)
+                .help("Number of concurrent upload workers, partitioned by publication stream");
+        parser.addArgument("--max-retry-seconds")
+                .dest("max_retry_seconds")
+                .type(Integer.class)
+                .setDefault(30)
+                .help("Seconds for which the driver retries a transaction after deadlocks or transient failures");
+        parser.addArgument("--async-in-flight")
+                .dest("async_in_flight")
+                .type(Integer.class)
+                .setDefault(0)
+                .help("Upload asynchronously with at most this many transactions in flight (0 disables)");
+        parser.addArgument("--node-cache-size")
+                .dest("node_cache_size")
+                .type(Long.class)
+                .setDefault(0L)
+                .help("Number of Author names and Stream keys to remember as existing, "
+                        + "so that they are MATCHed instead of MERGEd in Neo4j (0 disables)");
+        parser.addArgument("--seed-node-cache")
+                .dest("seed_node_cache")
+                .action(Arguments.storeTrue())
+                .help("Fill the node cache from the database before uploading");
+        parser.addArgument("--two-phase-citations")
+                .dest("two_phase_citations")
+                .action(Arguments.storeTrue())
+                .help("Write CITED_BY edges in a second phase, after all publications");
+        parser.addArgument("--citation-stubs")
+                .dest("citation_stubs")
+                .action(Arguments.storeTrue())
+                .help("In the second phase, create stub nodes for cited keys missing from the data "
+                        + "instead of dropping their citations");
+        parser.addArgument("--citation-batch-size")
+                .dest("citation_batch_size")
+                .type(Integer.class)
+                .setDefault(10000)
+                .help("Number of citation edges to write per transaction in the second phase");
+        parser.addArgument("--parser")
+                .choices("lean", "mmdb")
+                .setDefault("lean")
+                .help("How to read the XML file into memory: only the publication records, packed (lean), "
+                        + "or a full Mmdb with person and stream indexes");
+        parser.addArgument("--parse-threads")
+                .dest("parse_threads")
+                .type(Integer.class)
+                .setDefault(1)
+                .help("Number of threads parsing chunks of an uncompressed XML file in parallel "
+                        + "(implies --parser lean)");
+        parser.addArgument("--snapshot-dir")
+                .dest("snapshot_dir")
+                .metavar("DIR")
+                .help("Directory of binary snapshots of parsed XML files; a file with a snapshot there is "
+                        + "mapped instead of parsed, and one without gets a snapshot after parsing");
+        parser.addArgument("--streaming")
+                .action(Arguments.storeTrue())
+                .help("Upload records while parsing instead of building the whole DBLP in memory");
+        parser.addArgument("--delta-checkpoint")
+                .dest("delta_checkpoint")
+                .help("Checkpoint file of uploaded mdates and content hashes; "
+                        + "if given, only new or changed publications are uploaded");
+        parser.addArgument("--journal")
+                .help("Journal file recording the keys of committed publications");
+        parser.addArgument("--resume")
+                .action(Arguments.storeTrue())
+                .help("Skip publications already committed according to the journal");
+        parser.addArgument("--fresh")
+                .action(Arguments.storeTrue())
+                .help("Discard the progress recorded in an existing journal and upload everything");
+        parser.addArgument("--metrics-file")
+                .dest("metrics_file")
+                .help("Prometheus text file to rewrite periodically with upload metrics");
+        parser.addArgument("--metrics-interval")
+                .dest("metrics_interval")
+                .type(Long.class)
+                .setDefault(10L)
+                .help("Seconds between rewrites of the metrics file");
+        parser.addArgument("--serve")
+                .type(Integer.class)
+                .metavar("PORT")
+                .help("Run as a resident server accepting upload jobs over HTTP on this local port "
+                        + "instead of uploading a single file");
+        parser.addArgument("--shards")
+                .metavar("DIR")
+                .help("Upload the shards of a DataSplitter output directory with its manifest instead of "
+                        + "a single file, claiming them one at a time so that several loaders can share it");
+        parser.addArgument("--server-threads")
+                .dest("server_threads")
+                .type(Integer.class)
+                .setDefault(4)
+                .help("Number of upload jobs the server runs concurrently");
+        parser.addArgument("--server-queue")
+                .dest("server_queue")
+                .type(Integer.class)
+                .setDefault(100)
+                .help("Number of upload jobs the server queues before rejecting new ones");
         parser.addArgument("xmlFilename")
-                .help("XML data file to parse");
+                .nargs("?")
+                .help("XML data file to parse, optionally compressed as .gz or .zst "
+                        + "(omitted with --serve or --shards)");
         parser.addArgument("dtdFilename")
                 .help("DTD schema file for the XML data");
 
@@ -199,35 +319,207 @@ class App implements AutoCloseable {
 
         String hosturi = ns.get("host");
         String username = ns.get("user");
-        String password = ns.get("password");
+        // Not an argparse default, so that --help does not print the password
+        String password = (ns.get("password") != null) ? ns.get("password")
+                : System.getenv().getOrDefault("NEO4J_PASS", "bkmsneo4j");
 
         String dblpXmlFilename = ns.get("xmlFilename");
         String dblpDtdFilename = ns.get("dtdFilename");
         flag_store_all = ns.get("store_all");
+        int batchSize = ns.getInt("batch_size");
+        int numWorkers = ns.getInt("workers");
+        Duration maxRetryTime = Duration.ofSeconds(ns.getInt("max_retry_seconds"));
+        int maxInFlight = ns.getInt("async_in_flight");
+        long nodeCacheSize = ns.getLong("node_cache_size");
+        // Only Neo4j has MERGEs to save; the other sinks never look at the cache
+        if (nodeCacheSize > 0 && !ns.getString("sink").equals("neo4j")) {
+            parser.handleError(new ArgumentParserException(
+                    "--node-cache-size only applies to --sink neo4j", parser));
+            System.exit(1);
+        }
+        NodeCache nodeCache = (nodeCacheSize > 0) ? new NodeCache(nodeCacheSize) : null;
+
+        boolean streaming = ns.get("streaming");
+        String deltaFilename = ns.get("delta_checkpoint");
+        String journalFilename = ns.get("journal");
+        boolean resume = ns.get("resume");
+        boolean fresh = ns.get("fresh");
+        if ((resume || fresh) && journalFilename == null) {
+            parser.handleError(new ArgumentParserException("--resume and --fresh require --journal", parser));
+            System.exit(1);
+        }
+        if (resume && fresh) {
+            parser.handleError(new ArgumentParserException("give at most one of --resume and --fresh", parser));
+            System.exit(1);
+        }
+        // Rerunning a crashed upload without --resume must not wipe its progress
+        if (journalFilename != null && !resume && !fresh && ProgressJournal.hasProgress(Paths.get(journalFilename))) {
+            parser.handleError(new ArgumentParserException(String.format(
+                    "journal %s already records committed publications; give --resume to continue the upload "
+                            + "or --fresh to start over", journalFilename), parser));
+            System.exit(1);
+        }
+        Integer servePort = ns.get("serve");
+        Path shardDir = (ns.get("shards") != null) ? Paths.get(ns.getString("shards")) : null;
+        if ((dblpXmlFilename != null ? 1 : 0) + (servePort != null ? 1 : 0) + (shardDir != null ? 1 : 0) != 1) {
+            parser.handleError(new ArgumentParserException(
+                    "give exactly one of an XML file to upload, --serve or --shards", parser));
+            System.exit(1);
+        }
+        if (shardDir != null && (deltaFilename != null || (boolean) ns.get("two_phase_citations"))) {
+            parser.handleError(new ArgumentParserException(
+                    "--shards streams each shard and records completion per shard, and cannot be combined with "
+                            + "--delta-checkpoint or --two-phase-citations", parser));
+            System.exit(1);
+        }
+        if (servePort != null && (streaming || deltaFilename != null || journalFilename != null
+                || (boolean) ns.get("two_phase_citations"))) {
+            parser.handleError(new ArgumentParserException(
+                    "--serve streams each job and cannot be combined with --streaming, --delta-checkpoint, "
+                            + "--journal or --two-phase-citations", parser));
+            System.exit(1);
+        }
+        boolean twoPhaseCitations = ns.get("two_phase_citations");
+        if (twoPhaseCitations && streaming) {
+            parser.handleError(new ArgumentParserException(
+                    "--two-phase-citations resolves keys against the in-memory DBLP and cannot stream", parser));
+            System.exit(1);
+        }
+        CitationLoader citations = twoPhaseCitations ? new CitationLoader() : null;
+        Path metricsPath = (ns.get("metrics_file") != null) ? Paths.get(ns.getString("metrics_file")) : null;
+
+        DeltaCheckpoint delta = (deltaFilename != null) ? new DeltaCheckpoint(Paths.get(deltaFilename)) : null;
+        int parseThreads = ns.getInt("parse_threads");
+        if (parseThreads > 1 && (streaming || ns.getString("parser").equals("mmdb"))) {
+            parser.handleError(new ArgumentParserException(
+                    "--parse-threads reads lean records into memory and cannot be combined with "
+                            + "--streaming or --parser mmdb", parser));
+            System.exit(1);
+        }
 
-        // Parse the XML file using org.dblp.mmdb.Mmdb without messages
-        final PrintStream originalErr = System.err;
-        PrintStream filterStream = new PrintStream(new OutputStream() {
-            public void write(int b) {
-                // NO-OP
+        DblpRecords dblp = null;
+        boolean inMemory = !streaming && servePort == null && shardDir == null;
+        Path snapshotPath = null;
+        if (ns.get("snapshot_dir") != null) {
+            if (!inMemory) {
+                parser.handleError(new ArgumentParserException(
+                        "--snapshot-dir holds parsed files in memory and cannot be combined with "
+                                + "--streaming, --serve or --shards", parser));
+                System.exit(1);
             }
-        });
-        System.setErr(filterStream);
-        Mmdb dblp = new Mmdb(dblpXmlFilename, dblpDtdFilename, false);
-        System.setErr(originalErr);
-
-        // long startTime = System.currentTimeMillis();
-        try (App app = new App(hosturi, username, password)) {
-            app.createConstraints();
-            app.createIndexes();
-            dblp.publications().forEach(p -> {
-                app.addPublicationToNeo4j(p);
-                System.out.format("%s\n", p.getKey());
-            });
-        }
-        // long endTime = System.currentTimeMillis();
-
-        // System.out.format("%s\t%d\t", dblpXmlFilename, dblp.numberOfPublications());
-        // System.out.format("%.4f\n", (endTime - startTime) / 1000.0);
+            snapshotPath = RecordSnapshot.pathFor(Paths.get(ns.getString("snapshot_dir")), ns.getString("parser"),
+                    dblpXmlFilename, dblpDtdFilename);
+        }
+        if (snapshotPath != null && Files.exists(snapshotPath)) {
+            dblp = DblpRecords.openSnapshot(dblpXmlFilename, dblpDtdFilename, snapshotPath);
+            System.err.format("opened snapshot %s of %d publs\n", snapshotPath, dblp.numberOfPublications());
+        } else if (inMemory && parseThreads > 1) {
+            dblp = DblpRecords.parseParallel(dblpXmlFilename, dblpDtdFilename, parseThreads);
+        } else if (inMemory) {
+            dblp = ns.getString("parser").equals("lean") ? DblpRecords.parseLean(dblpXmlFilename, dblpDtdFilename)
+                    : DblpRecords.parseMmdb(dblpXmlFilename, dblpDtdFilename);
+        }
+        if (snapshotPath != null && !Files.exists(snapshotPath)) {
+            dblp.writeSnapshot(snapshotPath);
+            System.err.format("wrote snapshot %s\n", snapshotPath);
+        }
+
+        ProgressJournal journal = (journalFilename != null)
+                ? new ProgressJournal(Paths.get(journalFilename), resume)
+                : null;
+        if (resume) {
+            System.err.format("resuming after %d committed publs\n", journal.numCommitted());
+        }
+
+        GraphSink sink = switch (ns.getString("sink")) {
+            case "memory" -> new InMemorySink();
+            case "noop" -> new NoopSink();
+            default -> new Neo4jSink(hosturi, username, password, maxRetryTime);
+        };
+
+        try (App app = new App(sink); journal) {
+            IngestMetrics metrics = app.getMetrics();
+            metrics.registerMBean();
+            if (metricsPath != null) {
+                metrics.startReporting(metricsPath, ns.getLong("metrics_interval"));
+            }
+            app.setJournal(journal);
+            if (nodeCache != null) {
+                app.setNodeCache(nodeCache, ns.get("seed_node_cache"));
+            }
+            app.prepare();
+            if (servePort != null) {
+                try (IngestServer server = new IngestServer(app, dblpDtdFilename, servePort,
+                        ns.getInt("server_threads"), ns.getInt("server_queue"), batchSize)) {
+                    Thread mainThread = Thread.currentThread();
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        // main closes the server once awaitShutdown returns
+                        server.requestShutdown();
+                        try {
+                            // let main close the sink before the JVM halts
+                            mainThread.join();
+                        } catch (InterruptedException e) {
+                            // exit anyway
+                        }
+                    }));
+                    server.awaitShutdown();
+                }
+            } else if (shardDir != null) {
+                ShardClaims claims = new ShardClaims(shardDir);
+                while (true) {
+                    ShardClaims.Claim claim = claims.claimNext();
+                    if (claim == null) {
+                        break;
+                    }
+                    AtomicLong numRecords = new AtomicLong();
+                    try (claim; Stream<DblpRecord> records = DblpRecordReader.publications(claim.open(),
+                            dblpDtdFilename, STREAMING_QUEUE_CAPACITY)) {
+                        app.upload(records
+                                .peek(r -> numRecords.incrementAndGet())
+                                .filter(r -> isPending(r.getKey(), r.getTag(), r.getMdate(), r.getFields(),
+                                        null, journal))
+                                .map(r -> PublicationRow.of(r, flag_store_all)).iterator(),
+                                batchSize, numWorkers, maxInFlight);
+                        claim.complete(numRecords.get());
+                    }
+                    System.err.format("shard %s: %d publs\n", claim.shard.name, numRecords.get());
+                }
+                System.err.format("%d of %d shards complete\n", claims.getNumCompleted(), claims.getNumShards());
+            } else if (dblp == null) {
+                try (Stream<DblpRecord> records = DblpRecordReader.publications(
+                        XmlInput.open(dblpXmlFilename), dblpDtdFilename, STREAMING_QUEUE_CAPACITY)) {
+                    app.upload(records
+                            .filter(r -> isPending(r.getKey(), r.getTag(), r.getMdate(), r.getFields(),
+                                    delta, journal))
+                            .map(r -> PublicationRow.of(r, flag_store_all)).iterator(),
+                            batchSize, numWorkers, maxInFlight);
+                }
+            } else if (batchSize > 1 || numWorkers > 1 || maxInFlight > 0 || nodeCache != null
+                    || citations != null) {
+                app.upload(publicationsOf(dblp, delta, journal, citations)
+                        .map(p -> PublicationRow.of(p, flag_store_all))
+                        .map(row -> (citations != null) ? row.withoutCitations() : row).iterator(),
+                        batchSize, numWorkers, maxInFlight);
+            } else {
+                publicationsOf(dblp, delta, journal, citations).forEach(p -> {
+                    app.addPublication(p);
+                    app.committed(List.of(p.getKey()));
+                });
+            }
+
+            if (citations != null) {
+                citations.load(app, dblp, ns.get("citation_stubs"), ns.getInt("citation_batch_size"));
+            }
+
+            metrics.stopReporting(metricsPath);
+            metrics.printSummary();
+        }
+        if (delta != null) {
+            delta.save();
+            delta.report();
+        }
+        if (nodeCache != null) {
+            nodeCache.report();
+        }
     }
 }
@@ -0,0 +1,109 @@
+package dblpjavaparser;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Uploads batches through the asynchronous driver API, keeping at most
+ * {@code maxInFlight} transactions open. Submitting blocks while all of them
+ * are in flight, which applies backpressure to the producer, and the next
+ * batch is serialized while the previous ones are on the wire. Completed
+ * transactions are journaled and reported by the producer thread, so that no
+ * blocking I/O runs on the driver's event loop.
+ */
+@SuppressWarnings("javadoc")
+class AsyncWriter implements AutoCloseable {
+    private static class Completion {
+        final List<PublicationRow> rows;
+        final Throwable error;
+
+        Completion(List<PublicationRow> rows, Throwable error) {
+            this.rows = rows;
+            this.error = error;
+        }
+    }
+
+    private final App app;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final List<PublicationRow> batch;
+    // Filled by the driver's threads, drained only by the producer
+    private final BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+    private int numInFlight = 0;
+    private Throwable failure = null;
+    private long numWritten = 0;
+    private long numTransactions = 0;
+    private final long startTime = System.nanoTime();
+
+    public AsyncWriter(App app, int maxInFlight, int batchSize) {
+        this.app = app;
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxInFlight = maxInFlight;
+        this.batch = new ArrayList<>(this.batchSize);
+    }
+
+    public void submit(PublicationRow row) throws InterruptedException {
+        batch.add(row);
+        if (batch.size() >= batchSize) {
+            dispatch();
+        }
+    }
+
+    private void dispatch() throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<PublicationRow> rows = List.copyOf(batch);
+        batch.clear();
+
+        for (Completion c = completions.poll(); c != null; c = completions.poll()) {
+            complete(c);
+        }
+        while (numInFlight >= maxInFlight) {
+            complete(completions.take());
+        }
+        checkFailure();
+
+        CompletionStage<?> stage = app.addPublicationsAsync(rows);
+        numInFlight++;
+        numTransactions++;
+        stage.whenComplete((summary, error) -> completions.add(new Completion(rows, error)));
+    }
+
+    private void complete(Completion c) {
+        numInFlight--;
+        if (c.error != null) {
+            failure = (failure == null) ? c.error : failure;
+            return;
+        }
+        try {
+            app.committed(c.rows.stream().map(row -> row.key).toList());
+            numWritten += c.rows.size();
+        } catch (RuntimeException e) {
+            failure = (failure == null) ? e : failure;
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Asynchronous upload failed", failure);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        try {
+            dispatch();
+        } finally {
+            // Wait until every transaction in flight has completed
+            while (numInFlight > 0) {
+                complete(completions.take());
+            }
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.err.format("async: %d publs in %d transactions, %.1f publs/sec\n",
+                numWritten, numTransactions, (seconds > 0) ? numWritten / seconds : 0.0);
+        checkFailure();
+    }
+}
@@ -0,0 +1,79 @@
+package dblpjavaparser;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.dblp.mmdb.*;
+
+/**
+ * Second phase of a two-phase upload: after every Publication node has been
+ * written, citation edges are resolved against the in-memory DBLP and written
+ * in large batches sorted by cited key, so that hot cited publications are
+ * locked by one transaction at a time and in a deterministic order.
+ */
+@SuppressWarnings("javadoc")
+class CitationLoader {
+    private static class Citation implements Comparable<Citation> {
+        final String cited;
+        final String citing;
+
+        Citation(String cited, String citing) {
+            this.cited = cited;
+            this.citing = citing;
+        }
+
+        @Override
+        public int compareTo(Citation other) {
+            int c = cited.compareTo(other.cited);
+            return (c != 0) ? c : citing.compareTo(other.citing);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof Citation) && compareTo((Citation) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(cited, citing);
+        }
+    }
+
+    private final List<Citation> citations = new ArrayList<>();
+
+    public void collect(String citingKey, Stream<Field> citeFields) {
+        citeFields.map(Field::value)
+                .filter(v -> !v.equals("..."))
+                .forEach(citedKey -> citations.add(new Citation(citedKey, citingKey)));
+    }
+
+    public void load(App app, DblpRecords dblp, boolean createStubs, int batchSize) {
+        List<Citation> edges = citations.stream().distinct().sorted().toList();
+
+        List<String> stubKeys = new ArrayList<>();
+        List<Map<String, Object>> rows = new ArrayList<>(edges.size());
+        long numDropped = 0;
+        for (Citation c : edges) {
+            if (!dblp.hasPublication(c.cited)) {
+                if (!createStubs) {
+                    numDropped++;
+                    continue;
+                }
+                if (stubKeys.isEmpty() || !stubKeys.get(stubKeys.size() - 1).equals(c.cited)) {
+                    stubKeys.add(c.cited);
+                }
+            }
+            rows.add(Map.of("cited", c.cited, "citing", c.citing));
+        }
+
+        for (int start = 0; start < stubKeys.size(); start += batchSize) {
+            app.addCitationStubs(stubKeys.subList(start, Math.min(start + batchSize, stubKeys.size())));
+        }
+        for (int start = 0; start < rows.size(); start += batchSize) {
+            app.addCitations(rows.subList(start, Math.min(start + batchSize, rows.size())));
+        }
+
+        System.err.format("citations: %d edges written, %d dropped, %d stubs created\n",
+                rows.size(), numDropped, stubKeys.size());
+    }
+}
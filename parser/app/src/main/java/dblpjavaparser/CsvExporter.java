@@ -0,0 +1,314 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.dblp.mmdb.*;
+
+import net.sourceforge.argparse4j.*;
+import net.sourceforge.argparse4j.impl.*;
+import net.sourceforge.argparse4j.inf.*;
+
+/**
+ * Exports the DBLP dataset as CSV files for {@code neo4j-admin import}. Every
+ * file is written by its own thread, and headers are written to separate
+ * {@code *_header.csv} files.
+ */
+@SuppressWarnings("javadoc")
+class CsvExporter implements AutoCloseable {
+    // Fields of %field in dblp.dtd and attributes of <author>
+    private static final List<String> DTD_FIELDS = List.of(
+            "author", "editor", "title", "booktitle", "pages", "year", "address",
+            "journal", "volume", "number", "month", "url", "ee", "cdrom", "cite",
+            "publisher", "note", "crossref", "isbn", "series", "school", "chapter", "publnr");
+    private static final List<String> AUTHOR_ATTRIBUTES = List.of(
+            "aux", "bibtex", "orcid", "label", "type");
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final int WRITER_BUFFER_SIZE = 1 << 20;
+
+    private final boolean storeAll;
+    private final List<String> publColumns;
+    private final List<String> authorColumns;
+
+    private final CsvFile publications;
+    private final CsvFile authors;
+    private final CsvFile streams;
+    private final CsvFile authoredBy;
+    private final CsvFile groupedBy;
+    private final CsvFile citedBy;
+
+    private final Set<String> seenAuthors = new HashSet<>();
+    private final Set<String> seenStreams = new HashSet<>();
+    private final Set<String> seenStubs = new HashSet<>();
+
+    public CsvExporter(Path outputDir, boolean storeAll) throws IOException {
+        this.storeAll = storeAll;
+        if (storeAll) {
+            publColumns = new ArrayList<>(List.of("type"));
+            DTD_FIELDS.stream()
+                    .filter(f -> !PublicationRow.FIELDS_EXCLUDED_FOR_PUBL.contains(f))
+                    .forEach(publColumns::add);
+            authorColumns = AUTHOR_ATTRIBUTES;
+        } else {
+            publColumns = List.of();
+            authorColumns = List.of();
+        }
+
+        Files.createDirectories(outputDir);
+        publications = new CsvFile(outputDir, "publications", header("key:ID(Publication)", publColumns));
+        authors = new CsvFile(outputDir, "authors", header("name:ID(Author)", authorColumns));
+        streams = new CsvFile(outputDir, "streams", "key:ID(Stream)");
+        authoredBy = new CsvFile(outputDir, "authored_by",
+                ":START_ID(Publication),:END_ID(Author),order:int,num_authors:int");
+        groupedBy = new CsvFile(outputDir, "grouped_by", ":START_ID(Publication),:END_ID(Stream)");
+        citedBy = new CsvFile(outputDir, "cited_by", ":START_ID(Publication),:END_ID(Publication)");
+    }
+
+    /**
+     * The year is typed long, as toInteger stores it; years that are not
+     * numbers are left empty, so the property is absent as with the loader.
+     */
+    private static String header(String idColumn, List<String> columns) {
+        StringBuilder header = new StringBuilder(idColumn);
+        columns.forEach(c -> header.append(',').append(c.equals("year") ? "year:long" : c));
+        return header.toString();
+    }
+
+    private static void appendValue(StringBuilder line, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number) {
+            line.append(value);
+            return;
+        }
+        String s = value.toString();
+        line.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                line.append("\"\"");
+            } else if (c == '\n' || c == '\r') {
+                line.append(' ');
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    private static void appendRow(StringBuilder out, Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            appendValue(out, values[i]);
+        }
+        out.append('\n');
+    }
+
+    private static void appendRow(StringBuilder out, Object id, List<String> columns, Map<String, Object> properties) {
+        appendValue(out, id);
+        for (String column : columns) {
+            out.append(',');
+            appendValue(out, properties.get(column));
+        }
+        out.append('\n');
+    }
+
+    public void export(Mmdb dblp) throws IOException, InterruptedException {
+        List<Publication> publs = new ArrayList<>(dblp.getPublications());
+        for (int start = 0; start < publs.size(); start += CHUNK_SIZE) {
+            List<PublicationRow> rows = publs.subList(start, Math.min(start + CHUNK_SIZE, publs.size()))
+                    .parallelStream()
+                    .map(p -> PublicationRow.of(p, storeAll))
+                    .toList();
+            writeChunk(dblp, rows);
+        }
+    }
+
+    private void writeChunk(Mmdb dblp, List<PublicationRow> rows) throws IOException, InterruptedException {
+        StringBuilder publOut = new StringBuilder();
+        StringBuilder authorOut = new StringBuilder();
+        StringBuilder streamOut = new StringBuilder();
+        StringBuilder authoredByOut = new StringBuilder();
+        StringBuilder groupedByOut = new StringBuilder();
+        StringBuilder citedByOut = new StringBuilder();
+
+        for (PublicationRow row : rows) {
+            appendRow(publOut, row.key, publColumns, row.properties);
+
+            if (!row.streamKey.isEmpty()) {
+                if (seenStreams.add(row.streamKey)) {
+                    appendRow(streamOut, row.streamKey);
+                }
+                appendRow(groupedByOut, row.key, row.streamKey);
+            }
+
+            int numAuthors = row.authors.size();
+            for (int i = 0; i < numAuthors; i++) {
+                PublicationRow.Author author = row.authors.get(i);
+                if (seenAuthors.add(author.name)) {
+                    appendRow(authorOut, author.name, authorColumns, author.properties);
+                }
+                appendRow(authoredByOut, row.key, author.name, i + 1, numAuthors);
+            }
+
+            // A repeated cite is one CITED_BY relationship, as MERGE makes it
+            for (String citedKey : new LinkedHashSet<>(row.citedKeys)) {
+                // Cited publications missing from the dataset become stub nodes, like MERGE does
+                if (dblp.getPublication(citedKey) == null && seenStubs.add(citedKey)) {
+                    appendRow(publOut, citedKey, publColumns, Map.of());
+                }
+                appendRow(citedByOut, citedKey, row.key);
+            }
+        }
+
+        publications.put(publOut);
+        authors.put(authorOut);
+        streams.put(streamOut);
+        authoredBy.put(authoredByOut);
+        groupedBy.put(groupedByOut);
+        citedBy.put(citedByOut);
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        IOException failure = null;
+        for (CsvFile file : List.of(publications, authors, streams, authoredBy, groupedBy, citedBy)) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                failure = (failure == null) ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public static String importCommand(Path outputDir) {
+        return String.join(" ",
+                "neo4j-admin import",
+                "--nodes=Publication=" + files(outputDir, "publications"),
+                "--nodes=Author=" + files(outputDir, "authors"),
+                "--nodes=Stream=" + files(outputDir, "streams"),
+                "--relationships=AUTHORED_BY=" + files(outputDir, "authored_by"),
+                "--relationships=GROUPED_BY=" + files(outputDir, "grouped_by"),
+                "--relationships=CITED_BY=" + files(outputDir, "cited_by"));
+    }
+
+    private static String files(Path outputDir, String name) {
+        return outputDir.resolve(name + "_header.csv") + "," + outputDir.resolve(name + ".csv");
+    }
+
+    private static class CsvFile extends Thread {
+        private static final StringBuilder END_OF_INPUT = new StringBuilder();
+
+        private final BlockingQueue<StringBuilder> queue = new ArrayBlockingQueue<>(64);
+        private final Writer writer;
+        private volatile Throwable failure;
+
+        CsvFile(Path outputDir, String name, String header) throws IOException {
+            super("csv-" + name);
+            Files.writeString(outputDir.resolve(name + "_header.csv"), header + "\n", StandardCharsets.UTF_8);
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(outputDir.resolve(name + ".csv").toFile()), StandardCharsets.UTF_8),
+                    WRITER_BUFFER_SIZE);
+            start();
+        }
+
+        /**
+         * Queues a chunk for the writer, failing instead of blocking forever
+         * if the writer has failed or stopped.
+         */
+        void put(StringBuilder chunk) throws IOException, InterruptedException {
+            if (chunk.length() == 0) {
+                return;
+            }
+            checkFailure();
+            while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+                if (!isAlive()) {
+                    throw new IOException(getName() + " stopped writing");
+                }
+            }
+        }
+
+        private void checkFailure() throws IOException {
+            Throwable cause = failure;
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause != null) {
+                throw new IOException(getName() + " failed to write", cause);
+            }
+        }
+
+        @Override
+        public void run() {
+            try (Writer out = writer) {
+                for (StringBuilder chunk = queue.take(); chunk != END_OF_INPUT; chunk = queue.take()) {
+                    out.append(chunk);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                failure = e;
+                queue.clear();
+            }
+        }
+
+        void close() throws IOException, InterruptedException {
+            while (isAlive() && !queue.offer(END_OF_INPUT, 100, TimeUnit.MILLISECONDS)) {
+                // the writer is still draining a full queue
+            }
+            join();
+            checkFailure();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("entityExpansionLimit", "10000000");
+
+        ArgumentParser parser = ArgumentParsers.newFor("CsvExporter").build()
+                .defaultHelp(true)
+                .description("Parse the DBLP XML file and export CSV files for neo4j-admin import");
+
+        parser.addArgument("--store-all")
+                .dest("store_all")
+                .action(Arguments.storeTrue())
+                .help("Whether to export all properties");
+        parser.addArgument("xmlFilename")
+                .help("XML data file to parse, optionally compressed as .gz or .zst");
+        parser.addArgument("dtdFilename")
+                .help("DTD schema file for the XML data");
+        parser.addArgument("outputDir")
+                .help("Directory to write the CSV files into");
+
+        Namespace ns = null;
+        try {
+            ns = parser.parseArgs(args);
+        } catch (ArgumentParserException e) {
+            parser.handleError(e);
+            System.exit(1);
+        }
+
+        Path outputDir = Paths.get(ns.getString("outputDir"));
+        boolean storeAll = ns.get("store_all");
+
+        long startTime = System.currentTimeMillis();
+        Mmdb dblp = App.parseQuietly(ns.get("xmlFilename"), ns.get("dtdFilename"));
+        try (CsvExporter exporter = new CsvExporter(outputDir, storeAll)) {
+            exporter.export(dblp);
+        }
+        long endTime = System.currentTimeMillis();
+
+        System.out.format("Exported %d publs in %.2f (sec)\n", dblp.numberOfPublications(),
+                (endTime - startTime) / 1000.0);
+        System.out.println(importCommand(outputDir));
+    }
+}
@@ -1,54 +1,374 @@
 package dblpjavaparser;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.util.*;
+import java.util.stream.Stream;
 
 import org.dblp.mmdb.*;
-import org.xml.sax.SAXException;
 
+import com.google.common.base.Utf8;
+
+import net.sourceforge.argparse4j.*;
+import net.sourceforge.argparse4j.impl.*;
+import net.sourceforge.argparse4j.inf.*;
+
+/**
+ * Splits the DBLP records into shard files of one record per line, and
+ * writes a {@link ShardManifest} of the shards next to them. Records are
+ * assigned to shards by a {@link Strategy}.
+ */
 @SuppressWarnings("javadoc")
-class DataSplitter {
+class DataSplitter implements AutoCloseable {
+    private static final int STREAMING_QUEUE_CAPACITY = 10000;
+    // Written by splitRaw(): the bytes of the input before its first record
+    public static final String PROLOG_FILENAME = "prolog.xml";
+    // Shard of the keys without a stream under --strategy stream
+    private static final String NO_STREAM_FILENAME = "no_stream.txt";
+
+    enum Strategy {
+        // year/data_<mdate>.txt
+        MDATE,
+        // <stream>.txt as in GROUPED_BY, e.g. journals/tods.txt, or no_stream.txt
+        STREAM,
+        // shard_<n>.txt with n = hash(key) mod the number of shards
+        HASH,
+        // shard_<n>.txt, starting the next shard once one reaches the target size
+        SIZE
+    }
+
+    private final Path outputPath;
+    private final Strategy strategy;
+    private final int numShards;
+    private final long shardBytes;
+    private final WriterCache writers;
+    // If not null, records are spilled and sorted by key in finish() instead of written directly
+    private final SpillPartitioner spills;
+    private final ShardManifest manifest = new ShardManifest();
+    private int sizeShard = 0;
+    private long sizeShardBytes = 0;
+    private long numRawFilesOpened = 0;
+
+    public DataSplitter(Path outputPath, int maxOpenFiles) throws IOException {
+        this(outputPath, maxOpenFiles, Strategy.MDATE, 1, Long.MAX_VALUE, false);
+    }
+
+    public DataSplitter(Path outputPath, int maxOpenFiles, Strategy strategy, int numShards, long shardBytes,
+            boolean spill) throws IOException {
+        this.outputPath = outputPath;
+        this.strategy = strategy;
+        this.numShards = Math.max(numShards, 1);
+        this.shardBytes = Math.max(shardBytes, 1);
+        this.writers = spill ? null : new WriterCache(maxOpenFiles);
+        this.spills = spill ? new SpillPartitioner(outputPath, maxOpenFiles) : null;
+    }
+
+    /**
+     * Returns the shard of a record, as a path relative to the output
+     * directory.
+     */
+    private String shardOf(String key, String mdate, long bytes) {
+        switch (strategy) {
+            case MDATE:
+                return mdate.substring(0, 4) + "/data_" + mdate + ".txt";
+            case STREAM:
+                return streamOf(key);
+            case HASH:
+                return String.format("shard_%05d.txt", Math.floorMod(key.hashCode(), numShards));
+            case SIZE:
+                if (sizeShardBytes > 0 && sizeShardBytes + bytes > shardBytes) {
+                    sizeShard++;
+                    sizeShardBytes = 0;
+                }
+                sizeShardBytes += bytes;
+                return String.format("shard_%05d.txt", sizeShard);
+            default:
+                throw new IllegalStateException(strategy.toString());
+        }
+    }
+
+    /**
+     * Returns the shard of the GROUPED_BY stream of a key, such as
+     * {@code journals/tods.txt}. Keys without a stream, such as
+     * {@code homepages/x}, share {@value #NO_STREAM_FILENAME}; stream keys
+     * always contain a slash, so it is never a stream's shard.
+     */
+    private static String streamOf(String key) {
+        String streamKey = PublicationRow.getStreamKey(key);
+        return streamKey.isEmpty() ? NO_STREAM_FILENAME : streamKey + ".txt";
+    }
+
+    public void append(Publication p) throws IOException {
+        append(p.getKey(), p.getMdate(), p.getXml());
+    }
+
+    public void append(String key, String mdate, String xml) throws IOException {
+        long bytes = Utf8.encodedLength(xml) + 1;
+        String shard = shardOf(key, mdate, bytes);
+        manifest.add(shard, key, bytes);
+        if (spills != null) {
+            spills.add(shard, key, xml);
+        } else {
+            Writer writer = writers.get(outputPath.resolve(shard));
+            writer.write(xml);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Copies the records of an uncompressed XML file to their shards byte by
+     * byte, as found by {@link RawRecordScanner}, without parsing them. Shards
+     * hold the records in their original form and order, and are XML documents
+     * once put between the prolog of the file, written to
+     * {@value #PROLOG_FILENAME}, and the root end tag. Consecutive records of a
+     * shard are copied at once. Returns the number of records.
+     */
+    public long splitRaw(Path xmlPath, int maxOpenFiles) throws IOException {
+        if (spills != null) {
+            throw new IllegalStateException("Raw records cannot be spilled");
+        }
+        try (FileChannel source = FileChannel.open(xmlPath, StandardOpenOption.READ);
+                FileCache<FileChannel> channels = new FileCache<>(maxOpenFiles) {
+                    @Override
+                    protected FileChannel open(Path path, boolean truncate) throws IOException {
+                        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                truncate ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND);
+                    }
+                }) {
+            RawRecordScanner scanner = new RawRecordScanner(source);
+            Files.createDirectories(outputPath);
+            try (FileChannel prolog = FileChannel.open(outputPath.resolve(PROLOG_FILENAME),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                transfer(source, 0, scanner.getFirstRecord(), prolog);
+            }
+
+            RawCopier copier = new RawCopier(source, channels);
+            scanner.scan(copier);
+            copier.flush();
+            numRawFilesOpened = channels.getNumOpened();
+            return copier.numRecords;
+        }
+    }
+
+    private class RawCopier implements RawRecordScanner.RecordHandler {
+        final FileChannel source;
+        final FileCache<FileChannel> channels;
+        // The pending byte range of consecutive records going to the same shard
+        String pendingShard = null;
+        long pendingStart = 0;
+        long pendingEnd = 0;
+        long numRecords = 0;
+
+        RawCopier(FileChannel source, FileCache<FileChannel> channels) {
+            this.source = source;
+            this.channels = channels;
+        }
+
+        @Override
+        public void record(String tag, String key, String mdate, long start, long end) throws IOException {
+            if (key == null || mdate == null || !DblpRecord.isPublication(tag, key)) {
+                return;
+            }
+            String shard = shardOf(key, mdate, end - start);
+            manifest.add(shard, key, end - start);
+            numRecords++;
+            if (shard.equals(pendingShard) && start == pendingEnd) {
+                pendingEnd = end;
+                return;
+            }
+            flush();
+            pendingShard = shard;
+            pendingStart = start;
+            pendingEnd = end;
+        }
+
+        void flush() throws IOException {
+            if (pendingShard != null) {
+                transfer(source, pendingStart, pendingEnd, channels.get(outputPath.resolve(pendingShard)));
+                pendingShard = null;
+            }
+        }
+    }
+
+    private static void transfer(FileChannel source, long start, long end, FileChannel target) throws IOException {
+        for (long position = start; position < end;) {
+            position += source.transferTo(position, end - position, target);
+        }
+    }
+
+    public long getNumFilesOpened() {
+        return numRawFilesOpened + ((writers != null) ? writers.getNumOpened() : 0);
+    }
 
-    public static void main(String[] args) throws IOException, SAXException {
+    public ShardManifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Closes the shards, sorting spilled ones on {@code numThreads} threads
+     * within {@code memoryBudget} bytes, and writes the manifest. Returns the
+     * number of shards sorted externally.
+     */
+    public int finish(int numThreads, long memoryBudget) throws IOException {
+        int numExternal = 0;
+        if (spills != null) {
+            numExternal = spills.finish(outputPath, numThreads, memoryBudget);
+        } else {
+            writers.close();
+        }
+        Files.createDirectories(outputPath);
+        manifest.write(outputPath.resolve(ShardManifest.FILENAME));
+        return numExternal;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spills != null) {
+            spills.close();
+        } else {
+            writers.close();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
         // we need to raise entityExpansionLimit because the dblp.xml has millions of
         // entities
         System.setProperty("entityExpansionLimit", "10000000");
 
-        if (args.length != 3) {
-            System.err.format("Usage: java %s <dblp-xml-file> <dblp-dtd-file>\n", App.class.getName());
-            System.exit(0);
+        ArgumentParser parser = ArgumentParsers.newFor("DataSplitter").build()
+                .defaultHelp(true)
+                .description("Split the DBLP XML file into shard files of records and a "
+                        + ShardManifest.FILENAME + " listing them");
+
+        parser.addArgument("--strategy")
+                .choices("mdate", "stream", "hash", "size")
+                .setDefault("mdate")
+                .help("Shard by mdate into year/data_<mdate>.txt, by GROUPED_BY stream into e.g. journals/tods.txt, "
+                        + "by hash of key into --shards files, or into files of about --shard-mb each");
+        parser.addArgument("--shards")
+                .type(Integer.class)
+                .setDefault(64)
+                .help("Number of shards with --strategy hash");
+        parser.addArgument("--shard-mb")
+                .dest("shard_mb")
+                .type(Integer.class)
+                .setDefault(64)
+                .help("Target shard size in MB with --strategy size");
+        parser.addArgument("--max-open-files")
+                .dest("max_open_files")
+                .type(Integer.class)
+                .setDefault(256)
+                .help("Number of output files to keep open; the least recently used one is closed beyond this");
+        parser.addArgument("--streaming")
+                .action(Arguments.storeTrue())
+                .help("Spill records to their files in one pass without building the DBLP in memory, "
+                        + "then sort each file by key");
+        parser.addArgument("--raw")
+                .action(Arguments.storeTrue())
+                .help("Copy the bytes of records to their files without parsing them; the files then hold "
+                        + "XML fragments in input order, to be read with " + PROLOG_FILENAME
+                        + " (uncompressed input only)");
+        parser.addArgument("--threads")
+                .type(Integer.class)
+                .setDefault(Runtime.getRuntime().availableProcessors())
+                .help("Number of files to sort in parallel with --streaming");
+        parser.addArgument("--memory-mb")
+                .dest("memory_mb")
+                .type(Integer.class)
+                .setDefault(256)
+                .help("Memory budget in MB shared by the sorting threads with --streaming; "
+                        + "larger files are merge-sorted from disk");
+        parser.addArgument("xmlFilename")
+                .help("XML data file to parse, optionally compressed as .gz or .zst");
+        parser.addArgument("dtdFilename")
+                .help("DTD schema file for the XML data");
+        parser.addArgument("outputDir")
+                .help("Directory to write the shards and the manifest into");
+
+        Namespace ns = null;
+        try {
+            ns = parser.parseArgs(args);
+        } catch (ArgumentParserException e) {
+            parser.handleError(e);
+            System.exit(1);
         }
-        String dblpXmlFilename = args[0];
-        String dblpDtdFilename = args[1];
-        Path outputPath = Paths.get(args[2]);
 
-        System.out.println("building the dblp main memory DB ...");
+        String dblpXmlFilename = ns.getString("xmlFilename");
+        String dblpDtdFilename = ns.getString("dtdFilename");
+        Path outputPath = Paths.get(ns.getString("outputDir"));
+        Strategy strategy = Strategy.valueOf(ns.getString("strategy").toUpperCase());
+        boolean streaming = ns.getBoolean("streaming");
+        boolean raw = ns.getBoolean("raw");
+        if (raw && (streaming || XmlInput.isCompressed(dblpXmlFilename))) {
+            parser.handleError(new ArgumentParserException(
+                    "--raw needs an uncompressed XML file and cannot be combined with --streaming", parser));
+            System.exit(1);
+        }
+        int numThreads = Math.max(ns.getInt("threads"), 1);
+        long memoryBudget = ns.getInt("memory_mb") * (1L << 20);
 
-        long startTime = System.currentTimeMillis();
-        Mmdb dblp = new Mmdb(dblpXmlFilename, dblpDtdFilename, true);
-        long endTime = System.currentTimeMillis();
+        try (DataSplitter splitter = new DataSplitter(outputPath, ns.getInt("max_open_files"), strategy,
+                ns.getInt("shards"), ns.getInt("shard_mb") * (1L << 20), streaming)) {
+            if (raw) {
+                long startTime = System.currentTimeMillis();
+                long numRecords = splitter.splitRaw(Paths.get(dblpXmlFilename), ns.getInt("max_open_files"));
+                splitter.finish(numThreads, memoryBudget);
+                long endTime = System.currentTimeMillis();
+                System.out.format("Copied %d publs in %.2f (sec) with %d file opens\n", numRecords,
+                        (endTime - startTime) / 1000.0, splitter.getNumFilesOpened());
+            } else if (streaming) {
+                long startTime = System.currentTimeMillis();
+                long numRecords = 0;
+                try (Stream<DblpRecord> records = DblpRecordReader.publications(XmlInput.open(dblpXmlFilename),
+                        dblpDtdFilename, STREAMING_QUEUE_CAPACITY)) {
+                    for (DblpRecord r : (Iterable<DblpRecord>) records::iterator) {
+                        splitter.append(r.getKey(), r.getMdate(), r.toXml());
+                        numRecords++;
+                    }
+                }
+                long endTime = System.currentTimeMillis();
+                System.out.format("Spilled %d publs into %d files in %.2f (sec)\n", numRecords,
+                        splitter.getManifest().getShards().size(), (endTime - startTime) / 1000.0);
 
-        System.out.format("MMDB ready: %d publs, %d pers\n", dblp.numberOfPublications(), dblp.numberOfPersons());
-        System.out.format("Time elapsed: %.2f (sec)\n\n", (endTime - startTime) / 1000.0);
+                startTime = System.currentTimeMillis();
+                int numExternal = splitter.finish(numThreads, memoryBudget);
+                endTime = System.currentTimeMillis();
+                System.out.format("Sorted in %.2f (sec) on %d threads, %d files merged from disk\n",
+                        (endTime - startTime) / 1000.0, numThreads, numExternal);
+            } else {
+                System.out.println("building the dblp main memory DB ...");
 
-        Comparator<Publication> cmp = Comparator.comparing(Publication::getMdate, String.CASE_INSENSITIVE_ORDER);
-        dblp.publications().sorted(cmp).forEach(p -> {
-            String mdate = p.getMdate();
+                long startTime = System.currentTimeMillis();
+                Mmdb dblp;
+                try (InputStream xml = XmlInput.open(dblpXmlFilename);
+                        InputStream dtd = new FileInputStream(dblpDtdFilename)) {
+                    dblp = new Mmdb(xml, dtd, true);
+                }
+                long endTime = System.currentTimeMillis();
 
-            File dirYear = outputPath.resolve(mdate.substring(0, 4)).toFile();
-            if (!dirYear.exists()) {
-                dirYear.mkdirs();
-            }
+                System.out.format("MMDB ready: %d publs, %d pers\n", dblp.numberOfPublications(),
+                        dblp.numberOfPersons());
+                System.out.format("Time elapsed: %.2f (sec)\n\n", (endTime - startTime) / 1000.0);
 
-            File fileOut = Paths.get(dirYear.getPath(), String.format("data_%s.txt",
-                    mdate)).toFile();
-            try (FileOutputStream outputStream = new FileOutputStream(fileOut, true)) {
-                outputStream.write((p.getXml() + '\n').getBytes());
-            } catch (IOException e) {
-                e.printStackTrace();
+                startTime = System.currentTimeMillis();
+                // Publications come sorted by key; grouping them by mdate keeps few mdate files open at a time
+                Stream<Publication> publications = dblp.publications();
+                if (strategy == Strategy.MDATE) {
+                    publications = publications.sorted(
+                            Comparator.comparing(Publication::getMdate, String.CASE_INSENSITIVE_ORDER));
+                }
+                for (Publication p : (Iterable<Publication>) publications::iterator) {
+                    splitter.append(p);
+                }
+                splitter.finish(numThreads, memoryBudget);
+                endTime = System.currentTimeMillis();
+                System.out.format("Split in %.2f (sec) with %d file opens\n", (endTime - startTime) / 1000.0,
+                        splitter.getNumFilesOpened());
             }
-        });
+            System.out.format("Wrote %d shards and %s\n", splitter.getManifest().getShards().size(),
+                    outputPath.resolve(ShardManifest.FILENAME));
+        }
 
         System.out.println("done.");
     }
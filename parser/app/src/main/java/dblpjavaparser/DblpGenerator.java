@@ -0,0 +1,408 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+
+import net.sourceforge.argparse4j.*;
+import net.sourceforge.argparse4j.inf.*;
+
+/**
+ * Generates synthetic DBLP XML that is valid against {@code dblp.dtd}. Record
+ * types, authors per publication, author productivity, coauthor reuse, cite
+ * counts and mdates follow skewed distributions resembling the real dataset,
+ * and the output only depends on the seed and the options.
+ */
+@SuppressWarnings("javadoc")
+class DblpGenerator {
+    private static final String[] RECORD_TYPES = {
+            "inproceedings", "article", "proceedings", "incollection", "book",
+            "phdthesis", "mastersthesis", "www" };
+    private static final double[] RECORD_TYPE_WEIGHTS = {
+            0.50, 0.40, 0.03, 0.03, 0.01, 0.015, 0.005, 0.01 };
+
+    private static final String[] SYLLABLES = {
+            "ba", "ke", "li", "mo", "nu", "ra", "se", "ti", "vo", "za",
+            "chen", "dor", "han", "kim", "lan", "mar", "par", "son", "ter", "wang" };
+    private static final String[] FIRST_NAMES = {
+            "Anna", "Bo", "Carlos", "Dmitri", "Eun-ji", "Fatima", "Gerhard", "Hiro",
+            "Ingrid", "J&ouml;rg", "Kwame", "Li", "Maria", "Nikolai", "Olga", "Priya",
+            "Ren&eacute;e", "Stefan", "Tom&aacute;s", "Uwe", "Wei", "Xin", "Yuki", "Zo&euml;",
+            "J&uuml;rgen", "Fran&ccedil;ois" };
+    private static final String[] TITLE_WORDS = {
+            "Efficient", "Scalable", "Query", "Processing", "Graph", "Databases", "Learning",
+            "Distributed", "Index", "Structures", "for", "on", "of", "the", "Streams",
+            "Analysis", "Approximate", "Optimization", "Networks", "Transactions", "Systems",
+            "Neural", "Adaptive", "Parallel", "Joins", "Privacy", "Semantic", "Web", "Models" };
+
+    private static final LocalDate FIRST_MDATE = LocalDate.of(2000, 1, 1);
+    private static final LocalDate LAST_MDATE = LocalDate.of(2022, 12, 31);
+
+    /**
+     * Zipf-Mandelbrot distribution over {@code 0..n-1} with
+     * {@code p(k) ~ 1 / (k + 1 + q)^s}, sampled by binary search on the CDF.
+     */
+    private static class Zipf {
+        private final double[] cdf;
+
+        Zipf(int n, double s, double q) {
+            cdf = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1 / Math.pow(k + 1 + q, s);
+                cdf[k] = sum;
+            }
+            for (int k = 0; k < n; k++) {
+                cdf[k] /= sum;
+            }
+        }
+
+        int sample(Random random) {
+            int i = Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min((i >= 0) ? i : -i - 1, cdf.length - 1);
+        }
+    }
+
+    private final Random random;
+    private final Zipf authorDist;
+    private final Zipf streamDist;
+    private final double coauthorReuse;
+    private final double citingFraction;
+    private final int maxCites;
+
+    // Last coauthors of each author, for drawing recurring collaborations
+    private final Map<Integer, int[]> lastCoauthors = new HashMap<>();
+    private final Set<Integer> authorsWithHomepage = new HashSet<>();
+    private final Map<String, Integer> keyCounts = new HashMap<>();
+    private final Set<String> proceedingsKeys = new HashSet<>();
+    private final List<String> publicationKeys = new ArrayList<>();
+
+    private long numRecords;
+    private long numBytes;
+
+    public DblpGenerator(long seed, int numAuthors, int numStreams, double authorSkew,
+            double coauthorReuse, double citingFraction, int maxCites) {
+        random = new Random(seed);
+        authorDist = new Zipf(numAuthors, authorSkew, Math.max(1, Math.min(1000, numAuthors / 1000)));
+        streamDist = new Zipf(numStreams, authorSkew, Math.max(1, Math.min(100, numStreams / 1000)));
+        this.coauthorReuse = coauthorReuse;
+        this.citingFraction = citingFraction;
+        this.maxCites = maxCites;
+    }
+
+    /**
+     * Writes records until either limit is reached; a limit of zero or less is
+     * ignored. Proceedings and homepages written alongside the last
+     * publication may exceed the limit by a few records.
+     */
+    public void generate(Writer out, long maxRecords, long maxBytes) throws IOException {
+        write(out, "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n");
+        write(out, "<!DOCTYPE dblp SYSTEM \"dblp.dtd\">\n");
+        write(out, "<dblp>\n");
+        while ((maxRecords <= 0 || numRecords < maxRecords) && (maxBytes <= 0 || numBytes < maxBytes)) {
+            String type = RECORD_TYPES[sampleWeighted(RECORD_TYPE_WEIGHTS)];
+            if (type.equals("www")) {
+                writeHomepage(out, authorDist.sample(random));
+            } else {
+                writePublication(out, type);
+            }
+        }
+        write(out, "</dblp>\n");
+    }
+
+    private void writePublication(Writer out, String type) throws IOException {
+        LocalDate mdate = sampleMdate();
+        int year = Math.max(1970, mdate.getYear() - sampleGeometric(0.6));
+        int stream = streamDist.sample(random);
+        int[] authors = sampleAuthors(type);
+
+        String streamName = word(stream);
+        String key = switch (type) {
+            case "article" -> uniqueKey("journals/" + streamName + "/", authors, year);
+            case "inproceedings", "proceedings" -> uniqueKey("conf/" + streamName + "/", authors, year);
+            case "phdthesis", "mastersthesis" -> uniqueKey("phd/" + streamName + "/", authors, year);
+            default -> uniqueKey("books/" + streamName + "/", authors, year);
+        };
+        String crossref = "conf/" + streamName + "/" + year;
+
+        StringBuilder xml = new StringBuilder();
+        xml.append('<').append(type).append(" mdate=\"").append(mdate).append("\" key=\"").append(key).append("\">\n");
+        for (int author : authors) {
+            xml.append("<").append(type.equals("proceedings") ? "editor" : "author");
+            if (author % 10 == 0) {
+                xml.append(String.format(" orcid=\"0000-0002-%04d-%04d\"", author / 10000 % 10000, author % 10000));
+            }
+            xml.append('>').append(authorName(author)).append("</")
+                    .append(type.equals("proceedings") ? "editor" : "author").append(">\n");
+        }
+        xml.append("<title>").append(sampleTitle()).append("</title>\n");
+        if (!type.equals("proceedings")) {
+            int firstPage = 1 + random.nextInt(300);
+            xml.append("<pages>").append(firstPage).append('-').append(firstPage + 4 + random.nextInt(20))
+                    .append("</pages>\n");
+        }
+        xml.append("<year>").append(year).append("</year>\n");
+        switch (type) {
+            case "article" -> {
+                xml.append("<volume>").append(year - 1969).append("</volume>\n");
+                xml.append("<journal>").append(capitalize(streamName)).append("</journal>\n");
+            }
+            case "inproceedings", "incollection" -> {
+                xml.append("<booktitle>").append(streamName.toUpperCase()).append("</booktitle>\n");
+                if (type.equals("inproceedings")) {
+                    xml.append("<crossref>").append(crossref).append("</crossref>\n");
+                }
+            }
+            case "phdthesis", "mastersthesis" -> xml.append("<school>University of ")
+                    .append(capitalize(streamName)).append("</school>\n");
+            default -> xml.append("<publisher>").append(capitalize(streamName)).append(" Press</publisher>\n");
+        }
+        for (String cited : sampleCites()) {
+            xml.append("<cite>").append(cited).append("</cite>\n");
+        }
+        xml.append("<ee>https://doi.org/10.0000/").append(key.replace('/', '.')).append("</ee>\n");
+        xml.append("<url>db/").append(key.substring(0, key.lastIndexOf('/'))).append(".html</url>\n");
+        xml.append("</").append(type).append(">\n");
+
+        write(out, xml.toString());
+        numRecords++;
+        publicationKeys.add(key);
+
+        if (type.equals("inproceedings") && proceedingsKeys.add(crossref)) {
+            writeProceedings(out, crossref, streamName, year, mdate);
+        }
+        for (int author : authors) {
+            if (author % 10 == 1 && !authorsWithHomepage.contains(author)) {
+                writeHomepage(out, author);
+            }
+        }
+    }
+
+    private void writeProceedings(Writer out, String key, String streamName, int year, LocalDate mdate)
+            throws IOException {
+        write(out, "<proceedings mdate=\"" + mdate + "\" key=\"" + key + "\">\n"
+                + "<title>Proceedings of " + streamName.toUpperCase() + " " + year + "</title>\n"
+                + "<booktitle>" + streamName.toUpperCase() + "</booktitle>\n"
+                + "<year>" + year + "</year>\n"
+                + "<url>db/conf/" + streamName + "/" + streamName + year + ".html</url>\n"
+                + "</proceedings>\n");
+        numRecords++;
+        proceedingsKeys.add(key);
+    }
+
+    private void writeHomepage(Writer out, int author) throws IOException {
+        if (!authorsWithHomepage.add(author)) {
+            return;
+        }
+        write(out, "<www mdate=\"" + sampleMdate() + "\" key=\"homepages/" + (author % 100) + "/" + author + "\">\n"
+                + "<author>" + authorName(author) + "</author>\n"
+                + "<title>Home Page</title>\n"
+                + "</www>\n");
+        numRecords++;
+    }
+
+    private int[] sampleAuthors(String type) {
+        int numAuthors;
+        if (type.equals("phdthesis") || type.equals("mastersthesis")) {
+            numAuthors = 1;
+        } else if (random.nextDouble() < 0.001) {
+            // consortium papers with hundreds of authors
+            numAuthors = 50 + random.nextInt(450);
+        } else {
+            numAuthors = 1 + sampleGeometric(0.35);
+        }
+
+        LinkedHashSet<Integer> authors = new LinkedHashSet<>();
+        authors.add(authorDist.sample(random));
+        int[] coauthors = lastCoauthors.get(authors.iterator().next());
+        for (int attempts = 0; authors.size() < numAuthors && attempts < numAuthors * 4; attempts++) {
+            if (coauthors != null && random.nextDouble() < coauthorReuse) {
+                authors.add(coauthors[random.nextInt(coauthors.length)]);
+            } else {
+                authors.add(authorDist.sample(random));
+            }
+        }
+
+        int[] result = authors.stream().mapToInt(Integer::intValue).toArray();
+        if (result.length > 1 && result.length <= 20) {
+            for (int author : result) {
+                lastCoauthors.put(author, result);
+            }
+        }
+        return result;
+    }
+
+    private List<String> sampleCites() {
+        if (publicationKeys.isEmpty() || random.nextDouble() >= citingFraction) {
+            return List.of();
+        }
+        // Pareto-distributed reference list lengths, most of them short
+        int numCites = (int) Math.min(maxCites, Math.floor(3 / Math.pow(1 - random.nextDouble(), 1 / 1.2)));
+        List<String> cites = new ArrayList<>(numCites);
+        for (int i = 0; i < numCites; i++) {
+            if (random.nextDouble() < 0.02) {
+                cites.add("...");
+            } else {
+                // older publications are cited more often
+                double u = random.nextDouble();
+                cites.add(publicationKeys.get((int) (publicationKeys.size() * u * u * u)));
+            }
+        }
+        return cites;
+    }
+
+    private LocalDate sampleMdate() {
+        long days = LAST_MDATE.toEpochDay() - FIRST_MDATE.toEpochDay();
+        // modifications are skewed towards recent dates
+        return FIRST_MDATE.plusDays((long) (days * Math.sqrt(random.nextDouble())));
+    }
+
+    private String sampleTitle() {
+        int numWords = 3 + random.nextInt(8);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < numWords; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            String w = TITLE_WORDS[random.nextInt(TITLE_WORDS.length)];
+            title.append((random.nextDouble() < 0.02) ? "<i>" + w + "</i>" : w);
+        }
+        return title.append('.').toString();
+    }
+
+    private int sampleGeometric(double p) {
+        int n = 0;
+        while (random.nextDouble() >= p) {
+            n++;
+        }
+        return n;
+    }
+
+    private int sampleWeighted(double[] weights) {
+        double u = random.nextDouble() * Arrays.stream(weights).sum();
+        for (int i = 0; i < weights.length; i++) {
+            u -= weights[i];
+            if (u < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private String uniqueKey(String prefix, int[] authors, int year) {
+        String base = prefix + capitalize(word(authors[0] / FIRST_NAMES.length)) + String.format("%02d", year % 100);
+        int n = keyCounts.merge(base, 1, Integer::sum);
+        return (n == 1) ? base : base + "-" + (n - 1);
+    }
+
+    private static String authorName(int author) {
+        return FIRST_NAMES[author % FIRST_NAMES.length] + " " + capitalize(word(author / FIRST_NAMES.length));
+    }
+
+    /**
+     * Spells a non-negative number with syllables, so that different numbers
+     * give different words.
+     */
+    private static String word(int n) {
+        StringBuilder w = new StringBuilder();
+        do {
+            w.append(SYLLABLES[n % SYLLABLES.length]);
+            n /= SYLLABLES.length;
+        } while (n > 0);
+        return w.toString();
+    }
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
+    private void write(Writer out, String s) throws IOException {
+        out.write(s);
+        // the output is plain ASCII since non-ASCII characters are entities
+        numBytes += s.length();
+    }
+
+    public static void main(String[] args) throws Exception {
+        ArgumentParser parser = ArgumentParsers.newFor("DblpGenerator").build()
+                .defaultHelp(true)
+                .description("Generate a synthetic, DTD-valid DBLP XML file");
+
+        parser.addArgument("--records")
+                .dest("records")
+                .type(Long.class)
+                .setDefault(100000L)
+                .help("Number of records to generate");
+        parser.addArgument("--megabytes")
+                .dest("megabytes")
+                .type(Long.class)
+                .setDefault(0L)
+                .help("Stop after this many megabytes instead (0: use --records)");
+        parser.addArgument("--seed")
+                .dest("seed")
+                .type(Long.class)
+                .setDefault(42L)
+                .help("Random seed");
+        parser.addArgument("--authors")
+                .dest("authors")
+                .type(Integer.class)
+                .setDefault(0)
+                .help("Number of distinct authors (0: half the number of records)");
+        parser.addArgument("--streams")
+                .dest("streams")
+                .type(Integer.class)
+                .setDefault(0)
+                .help("Number of distinct journals and conferences (0: records / 500)");
+        parser.addArgument("--skew")
+                .dest("skew")
+                .type(Double.class)
+                .setDefault(1.0)
+                .help("Zipf exponent of author and stream popularity");
+        parser.addArgument("--coauthor-reuse")
+                .dest("coauthor_reuse")
+                .type(Double.class)
+                .setDefault(0.5)
+                .help("Probability of drawing a coauthor from the first author's last collaboration");
+        parser.addArgument("--citing-fraction")
+                .dest("citing_fraction")
+                .type(Double.class)
+                .setDefault(0.05)
+                .help("Fraction of publications with cite fields");
+        parser.addArgument("--max-cites")
+                .dest("max_cites")
+                .type(Integer.class)
+                .setDefault(500)
+                .help("Maximum number of cite fields of a publication");
+        parser.addArgument("outputFilename")
+                .help("XML file to write; dblp.dtd is expected next to it");
+
+        Namespace ns = null;
+        try {
+            ns = parser.parseArgs(args);
+        } catch (ArgumentParserException e) {
+            parser.handleError(e);
+            System.exit(1);
+        }
+
+        long maxRecords = ns.getLong("records");
+        long maxBytes = ns.getLong("megabytes") << 20;
+        long sizeHint = (maxBytes > 0) ? maxBytes / 600 : maxRecords;
+        int numAuthors = (ns.getInt("authors") > 0) ? ns.getInt("authors") : (int) Math.max(100, sizeHint / 2);
+        int numStreams = (ns.getInt("streams") > 0) ? ns.getInt("streams") : (int) Math.max(10, sizeHint / 500);
+
+        DblpGenerator generator = new DblpGenerator(ns.getLong("seed"), numAuthors, numStreams,
+                ns.getDouble("skew"), ns.getDouble("coauthor_reuse"), ns.getDouble("citing_fraction"),
+                ns.getInt("max_cites"));
+
+        long startTime = System.currentTimeMillis();
+        try (Writer out = Files.newBufferedWriter(Paths.get(ns.getString("outputFilename")),
+                StandardCharsets.ISO_8859_1)) {
+            generator.generate(out, (maxBytes > 0) ? 0 : maxRecords, maxBytes);
+        }
+        long endTime = System.currentTimeMillis();
+
+        System.out.format("Generated %d records (%.1f MB) in %.2f (sec)\n", generator.numRecords,
+                generator.numBytes / 1048576.0, (endTime - startTime) / 1000.0);
+    }
+}
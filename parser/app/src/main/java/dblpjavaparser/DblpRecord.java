@@ -0,0 +1,242 @@
+package dblpjavaparser;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import org.dblp.mmdb.*;
+
+/**
+ * A lightweight DBLP record holding only its tag, key, mdate and fields,
+ * without any of the indexes built by {@link Mmdb}. Fields are packed into
+ * parallel arrays of tag ids, values and attributes, and only become
+ * {@link Field} objects when they are asked for. Values that recur across
+ * records (see {@link ValuePool}) are kept as references, so that they can be
+ * shared; all other values of a record are concatenated into one string, each
+ * followed by a NUL, which XML cannot contain.
+ */
+@SuppressWarnings("javadoc")
+class DblpRecord {
+    static class RecordField extends Field {
+        RecordField(String tag, Map<String, String> attributes, String value) {
+            super(tag, attributes, value);
+        }
+    }
+
+    // Field tags by id, shared by all records
+    private static final List<String> FIELD_TAGS = new CopyOnWriteArrayList<>();
+    private static final Map<String, Short> FIELD_TAG_IDS = new ConcurrentHashMap<>();
+    private static final char TEXT_END = '\0';
+    // Fields whose values Mmdb returns as parsed text rather than escaped XML
+    private static final Set<String> TEXT_TAGS = Set.of("author", "editor", "journal", "booktitle", "year");
+
+    private final String tag;
+    private final String key;
+    private final String mdate;
+    // Record attributes other than key and mdate, such as publtype
+    private final Map<String, String> attributes;
+    private final short[] fieldTags;
+    // Recurring values, or null for values in text
+    private final String[] fieldValues;
+    // The other values in field order, each terminated by TEXT_END
+    private final String text;
+    // Alternating attribute names and values of each field, or null if no field has any
+    private final String[][] fieldAttributes;
+
+    DblpRecord(String tag, String key, String mdate, Map<String, String> attributes, List<Field> fields) {
+        this.tag = tag;
+        this.key = key;
+        this.mdate = mdate;
+        this.attributes = attributes;
+        this.fieldTags = new short[fields.size()];
+        this.fieldValues = new String[fields.size()];
+        StringBuilder packedText = new StringBuilder();
+        String[][] packedAttributes = null;
+        for (int i = 0; i < fields.size(); i++) {
+            Field f = fields.get(i);
+            fieldTags[i] = fieldTagId(f.tag());
+            if (ValuePool.isShared(f.tag())) {
+                fieldValues[i] = f.value();
+            } else {
+                if (f.value().indexOf(TEXT_END) >= 0) {
+                    throw new IllegalArgumentException("NUL in field " + f.tag() + " of " + key);
+                }
+                packedText.append(f.value()).append(TEXT_END);
+            }
+            if (f.hasAttributes()) {
+                if (packedAttributes == null) {
+                    packedAttributes = new String[fields.size()][];
+                }
+                packedAttributes[i] = f.attributes().flatMap(a -> Stream.of(a.getKey(), a.getValue()))
+                        .toArray(String[]::new);
+            }
+        }
+        this.fieldAttributes = packedAttributes;
+        this.text = packedText.toString();
+    }
+
+    private static short fieldTagId(String tag) {
+        return FIELD_TAG_IDS.computeIfAbsent(tag, t -> {
+            synchronized (FIELD_TAGS) {
+                if (FIELD_TAGS.size() > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct field tags");
+                }
+                FIELD_TAGS.add(t);
+                return (short) (FIELD_TAGS.size() - 1);
+            }
+        });
+    }
+
+    public static DblpRecord of(Publication publ) {
+        Map<String, String> attributes = new LinkedHashMap<>(publ.getAttributes());
+        attributes.remove("key");
+        attributes.remove("mdate");
+        return new DblpRecord(publ.getTag(), publ.getKey(), publ.getMdate(),
+                attributes.isEmpty() ? Map.of() : attributes, List.copyOf(publ.getFields()));
+    }
+
+    /**
+     * Whether this record is a publication in the sense of
+     * {@link Mmdb#publications()}, i.e., not a person record.
+     */
+    public boolean isPublication() {
+        return isPublication(tag, key);
+    }
+
+    static boolean isTextField(String tag) {
+        return TEXT_TAGS.contains(tag);
+    }
+
+    /**
+     * Appends text with the markup characters escaped, like Mmdb keeps most field
+     * values and attributes; quotes are only escaped in attributes.
+     */
+    static void escape(StringBuilder out, CharSequence text, boolean attribute) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append(attribute ? "&quot;" : "\"");
+                case '\'' -> out.append(attribute ? "&apos;" : "'");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    static boolean isPublication(String tag, String key) {
+        return !(tag.equals("person") || (tag.equals("www") && key.startsWith("homepages/")));
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getMdate() {
+        return mdate;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Serializes the record in the single-element form of
+     * {@link Publication#getXml()}.
+     */
+    public String toXml() {
+        StringBuilder xml = new StringBuilder(256);
+        xml.append('<').append(tag).append(" key=\"").append(key).append('"');
+        if (mdate != null) {
+            xml.append(" mdate=\"").append(mdate).append('"');
+        }
+        attributes.forEach((name, value) -> xml.append(' ').append(name).append("=\"").append(value).append('"'));
+        xml.append('>');
+        int textStart = 0;
+        for (int i = 0; i < fieldTags.length; i++) {
+            String fieldTag = FIELD_TAGS.get(fieldTags[i]);
+            xml.append('<').append(fieldTag);
+            String[] pairs = (fieldAttributes != null) ? fieldAttributes[i] : null;
+            for (int j = 0; pairs != null && j < pairs.length; j += 2) {
+                xml.append(' ').append(pairs[j]).append("=\"").append(pairs[j + 1]).append('"');
+            }
+            xml.append('>');
+            String value;
+            if (fieldValues[i] != null) {
+                value = fieldValues[i];
+            } else {
+                int textEnd = text.indexOf(TEXT_END, textStart);
+                value = text.substring(textStart, textEnd);
+                textStart = textEnd + 1;
+            }
+            if (TEXT_TAGS.contains(fieldTag)) {
+                escape(xml, value, false);
+            } else {
+                xml.append(value);
+            }
+            xml.append("</").append(fieldTag).append('>');
+        }
+        return xml.append("</").append(tag).append('>').toString();
+    }
+
+    private Field field(int i) {
+        String[] pairs = (fieldAttributes != null) ? fieldAttributes[i] : null;
+        Map<String, String> fieldAttributeMap = Map.of();
+        if (pairs != null) {
+            fieldAttributeMap = new LinkedHashMap<>();
+            for (int j = 0; j < pairs.length; j += 2) {
+                fieldAttributeMap.put(pairs[j], pairs[j + 1]);
+            }
+        }
+        String value = (fieldValues[i] != null) ? fieldValues[i] : textValue(i);
+        return new RecordField(FIELD_TAGS.get(fieldTags[i]), fieldAttributeMap, value);
+    }
+
+    /**
+     * Finds the value of a field in text by skipping the text values of the
+     * fields before it.
+     */
+    private String textValue(int i) {
+        int start = 0;
+        for (int j = 0; j < i; j++) {
+            if (fieldValues[j] == null) {
+                start = text.indexOf(TEXT_END, start) + 1;
+            }
+        }
+        return text.substring(start, text.indexOf(TEXT_END, start));
+    }
+
+    public Collection<Field> getFields() {
+        return new AbstractList<>() {
+            @Override
+            public Field get(int index) {
+                return field(index);
+            }
+
+            @Override
+            public int size() {
+                return fieldTags.length;
+            }
+        };
+    }
+
+    public Collection<Field> getFields(String... tags) {
+        return fields(tags).toList();
+    }
+
+    public Stream<Field> fields() {
+        return IntStream.range(0, fieldTags.length).mapToObj(this::field);
+    }
+
+    public Stream<Field> fields(String... tags) {
+        List<String> tagList = Arrays.asList(tags);
+        return IntStream.range(0, fieldTags.length)
+                .filter(i -> tagList.contains(FIELD_TAGS.get(fieldTags[i])))
+                .mapToObj(this::field);
+    }
+}
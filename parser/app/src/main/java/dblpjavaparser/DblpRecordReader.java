@@ -0,0 +1,259 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.*;
+
+import javax.xml.parsers.*;
+
+import org.dblp.mmdb.Field;
+import org.xml.sax.*;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SAX reader emitting each DBLP record as soon as its closing tag is parsed,
+ * so that memory use does not depend on the size of the input.
+ */
+@SuppressWarnings("javadoc")
+class DblpRecordReader extends DefaultHandler {
+    private static final DblpRecord END_OF_INPUT = new DblpRecord("", "", "", Map.of(), List.of());
+    // Fields of which Mmdb only keeps the first value, returned for each of them
+    private static final Set<String> VENUE_TAGS = Set.of("journal", "booktitle");
+
+    private final String dtdFilename;
+    // Shares recurring values among the records if not null, for records kept in memory
+    private final ValuePool pool;
+    private final Consumer<DblpRecord> consumer;
+
+    private int depth = 0;
+    private String recordTag;
+    private String recordKey;
+    private String recordMdate;
+    private Map<String, String> recordAttributes;
+    private List<Field> fields;
+    private Map<String, String> venues;
+    // The year Mmdb returns for every year field of the record, or null without any
+    private String year;
+    private String fieldTag;
+    private Map<String, String> fieldAttributes;
+    private final StringBuilder value = new StringBuilder();
+
+    private DblpRecordReader(String dtdFilename, ValuePool pool, Consumer<DblpRecord> consumer) {
+        this.dtdFilename = dtdFilename;
+        this.pool = pool;
+        this.consumer = consumer;
+    }
+
+    public static void parse(InputStream xml, String dtdFilename, Consumer<DblpRecord> consumer)
+            throws IOException, SAXException {
+        parse(xml, dtdFilename, null, consumer);
+    }
+
+    /**
+     * Parses the XML with recurring values of the records taken from a pool,
+     * for records that are kept in memory.
+     */
+    public static void parse(InputStream xml, String dtdFilename, ValuePool pool, Consumer<DblpRecord> consumer)
+            throws IOException, SAXException {
+        SAXParser parser;
+        try {
+            parser = SAXParserFactory.newInstance().newSAXParser();
+        } catch (ParserConfigurationException e) {
+            throw new SAXException(e);
+        }
+        parser.parse(new InputSource(xml), new DblpRecordReader(dtdFilename, pool, consumer));
+    }
+
+    /**
+     * Parses the XML on a background thread and returns its publications as a
+     * stream, buffering at most {@code capacity} records in between. Closing the
+     * stream stops the parser.
+     */
+    public static Stream<DblpRecord> publications(InputStream xml, String dtdFilename, int capacity) {
+        BlockingQueue<DblpRecord> queue = new ArrayBlockingQueue<>(capacity);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        Thread producer = new Thread(() -> {
+            try (InputStream in = xml) {
+                parse(in, dtdFilename, r -> {
+                    if (r.isPublication()) {
+                        try {
+                            queue.put(r);
+                        } catch (InterruptedException e) {
+                            throw new CancellationException();
+                        }
+                    }
+                });
+            } catch (CancellationException e) {
+                return;
+            } catch (Exception e) {
+                failure.set(e);
+            }
+            try {
+                queue.put(END_OF_INPUT);
+            } catch (InterruptedException e) {
+                // the consumer has gone away
+            }
+        }, "dblp-record-reader");
+        producer.setDaemon(true);
+        producer.start();
+
+        Iterator<DblpRecord> iterator = new Iterator<>() {
+            private DblpRecord next = null;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CancellationException();
+                    }
+                }
+                if (next == END_OF_INPUT && failure.get() != null) {
+                    throw new IllegalStateException("Failed to parse the XML file", failure.get());
+                }
+                return next != END_OF_INPUT;
+            }
+
+            @Override
+            public DblpRecord next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                DblpRecord r = next;
+                next = null;
+                return r;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(producer::interrupt);
+    }
+
+    @Override
+    public InputSource resolveEntity(String publicId, String systemId) throws IOException {
+        if (systemId != null && systemId.endsWith(".dtd")) {
+            InputSource source = new InputSource(new FileInputStream(dtdFilename));
+            source.setSystemId(new File(dtdFilename).toURI().toString());
+            return source;
+        }
+        return null;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        depth++;
+        if (depth == 2) {
+            recordTag = qName;
+            recordKey = attributes.getValue("key");
+            recordMdate = attributes.getValue("mdate");
+            recordAttributes = new LinkedHashMap<>(attributesOf(attributes));
+            recordAttributes.remove("key");
+            recordAttributes.remove("mdate");
+            fields = new ArrayList<>();
+            venues = new HashMap<>();
+            year = null;
+        } else if (depth == 3) {
+            fieldTag = qName;
+            fieldAttributes = attributesOf(attributes);
+            value.setLength(0);
+        } else if (depth > 3) {
+            // Inline markup such as <i> or <sub> is kept in the field value, like Mmdb does
+            value.append('<').append(qName);
+            for (int i = 0; i < attributes.getLength(); i++) {
+                value.append(' ').append(attributes.getQName(i)).append("=\"");
+                DblpRecord.escape(value, attributes.getValue(i), true);
+                value.append('"');
+            }
+            value.append('>');
+        }
+    }
+
+    private static Map<String, String> attributesOf(Attributes attributes) {
+        if (attributes.getLength() == 0) {
+            return Map.of();
+        }
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            StringBuilder value = new StringBuilder();
+            DblpRecord.escape(value, attributes.getValue(i), true);
+            map.put(attributes.getQName(i), value.toString());
+        }
+        return map;
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        if (depth > 3) {
+            value.append("</").append(qName).append('>');
+        } else if (depth == 3) {
+            String fieldValue = value.toString();
+            if (VENUE_TAGS.contains(fieldTag)) {
+                fieldValue = venues.computeIfAbsent(fieldTag, tag -> value.toString());
+            } else if (fieldTag.equals("year")) {
+                String parsed = parseYear(fieldValue);
+                year = (parsed != null) ? parsed : Objects.requireNonNullElse(year, "0");
+            }
+            if (pool != null && ValuePool.isShared(fieldTag)) {
+                fieldValue = pool.intern(fieldValue);
+            }
+            fields.add(new DblpRecord.RecordField(fieldTag, fieldAttributes, fieldValue));
+        } else if (depth == 2) {
+            if (year != null) {
+                normalizeYears();
+            }
+            String mdate = (pool != null) ? pool.intern(recordMdate) : recordMdate;
+            consumer.accept(new DblpRecord(recordTag, recordKey, mdate,
+                    recordAttributes.isEmpty() ? Map.of() : recordAttributes, fields));
+            fields = null;
+            venues = null;
+        }
+        depth--;
+    }
+
+    /**
+     * Returns the year of a field the way Mmdb reads it, or null if Mmdb
+     * rejects it: only four digits make a year.
+     */
+    private static String parseYear(String text) {
+        if (text.length() != 4) {
+            return null;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return null;
+            }
+        }
+        return Integer.toString(Integer.parseInt(text));
+    }
+
+    /**
+     * Sets every year field of the record to its last valid year, or to 0
+     * without one, which is what Mmdb returns for them.
+     */
+    private void normalizeYears() {
+        String recordYear = (pool != null) ? pool.intern(year) : year;
+        for (ListIterator<Field> it = fields.listIterator(); it.hasNext();) {
+            Field field = it.next();
+            if (field.tag().equals("year") && !field.value().equals(recordYear)) {
+                it.set(new DblpRecord.RecordField("year", field.getAttributes(), recordYear));
+            }
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (depth == 3 && DblpRecord.isTextField(fieldTag)) {
+            value.append(ch, start, length);
+        } else if (depth >= 3) {
+            DblpRecord.escape(value, CharBuffer.wrap(ch, start, length), false);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.dblp.mmdb.*;
+import org.xml.sax.SAXException;
+
+/**
+ * Publications of a DBLP XML file held in memory. A lean instance is read with
+ * {@link DblpRecordReader} and builds none of the person, homonym, TOC or
+ * stream indexes of {@link Mmdb}; the full Mmdb is only parsed if asked for.
+ * Publications can also come from a {@link RecordSnapshot} of an earlier parse.
+ */
+@SuppressWarnings("javadoc")
+class DblpRecords {
+    private final String xmlFilename;
+    private final String dtdFilename;
+    private final List<DblpRecord> records;
+    // Lean records sorted by key, for lookups without a set of the keys
+    private final DblpRecord[] byKey;
+    private final RecordSnapshot snapshot;
+    private Mmdb mmdb;
+
+    private DblpRecords(String xmlFilename, String dtdFilename, List<DblpRecord> records, Mmdb mmdb) {
+        this(xmlFilename, dtdFilename, records, mmdb, null);
+    }
+
+    private DblpRecords(String xmlFilename, String dtdFilename, List<DblpRecord> records, Mmdb mmdb,
+            RecordSnapshot snapshot) {
+        this.xmlFilename = xmlFilename;
+        this.dtdFilename = dtdFilename;
+        this.records = records;
+        this.mmdb = mmdb;
+        this.snapshot = snapshot;
+        if (records != null && snapshot == null) {
+            byKey = records.toArray(new DblpRecord[0]);
+            Arrays.parallelSort(byKey, Comparator.comparing(DblpRecord::getKey));
+        } else {
+            byKey = null;
+        }
+    }
+
+    public static DblpRecords parseLean(String xmlFilename, String dtdFilename) throws IOException, SAXException {
+        List<DblpRecord> records = new ArrayList<>();
+        try (InputStream in = XmlInput.open(xmlFilename)) {
+            DblpRecordReader.parse(in, dtdFilename, new ValuePool(), r -> {
+                if (r.isPublication()) {
+                    records.add(r);
+                }
+            });
+        }
+        return new DblpRecords(xmlFilename, dtdFilename, records, null);
+    }
+
+    /**
+     * Reads the file lean with {@link ParallelRecordReader}, or sequentially if
+     * it is compressed.
+     */
+    public static DblpRecords parseParallel(String xmlFilename, String dtdFilename, int parallelism)
+            throws IOException, SAXException {
+        if (XmlInput.isCompressed(xmlFilename)) {
+            return parseLean(xmlFilename, dtdFilename);
+        }
+        return new DblpRecords(xmlFilename, dtdFilename,
+                ParallelRecordReader.publications(xmlFilename, dtdFilename, parallelism), null);
+    }
+
+    public static DblpRecords parseMmdb(String xmlFilename, String dtdFilename) throws IOException, SAXException {
+        return new DblpRecords(xmlFilename, dtdFilename, null, App.parseQuietly(xmlFilename, dtdFilename));
+    }
+
+    /**
+     * Opens a snapshot written by {@link #writeSnapshot}; its records are only
+     * decoded as they are iterated.
+     */
+    public static DblpRecords openSnapshot(String xmlFilename, String dtdFilename, Path snapshotPath)
+            throws IOException {
+        RecordSnapshot snapshot = RecordSnapshot.open(snapshotPath);
+        return new DblpRecords(xmlFilename, dtdFilename, snapshot.asList(), null, snapshot);
+    }
+
+    public void writeSnapshot(Path snapshotPath) throws IOException {
+        try (Stream<DblpRecord> publications = publications()) {
+            RecordSnapshot.write(snapshotPath, publications.iterator());
+        }
+    }
+
+    public Stream<DblpRecord> publications() {
+        return (records != null) ? records.stream() : mmdb.publications().map(DblpRecord::of);
+    }
+
+    public int numberOfPublications() {
+        return (records != null) ? records.size() : mmdb.numberOfPublications();
+    }
+
+    public boolean hasPublication(String key) {
+        if (snapshot != null) {
+            return snapshot.containsKey(key);
+        }
+        return (byKey != null) ? containsKey(key) : mmdb.getPublication(key) != null;
+    }
+
+    private boolean containsKey(String key) {
+        int low = 0;
+        int high = byKey.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = byKey[mid].getKey().compareTo(key);
+            if (cmp == 0) {
+                return true;
+            } else if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the full Mmdb of the file, parsing it on the first call if this
+     * instance is lean.
+     */
+    public synchronized Mmdb getMmdb() throws IOException, SAXException {
+        if (mmdb == null) {
+            mmdb = App.parseQuietly(xmlFilename, dtdFilename);
+        }
+        return mmdb;
+    }
+}
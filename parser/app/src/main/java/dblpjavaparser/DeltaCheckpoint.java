@@ -0,0 +1,105 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import org.dblp.mmdb.Field;
+
+import com.google.common.hash.*;
+
+/**
+ * Persistent map from publication keys to the mdate and content hash of their
+ * last upload, used to send only new or changed publications.
+ */
+@SuppressWarnings("javadoc")
+class DeltaCheckpoint {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static class Entry {
+        final String mdate;
+        final long hash;
+
+        Entry(String mdate, long hash) {
+            this.mdate = mdate;
+            this.hash = hash;
+        }
+    }
+
+    private final Path path;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long numNew = 0;
+    private long numUpdated = 0;
+    private long numSkipped = 0;
+
+    public DeltaCheckpoint(Path path) throws IOException {
+        this.path = path;
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split("\t");
+                if (columns.length == 3) {
+                    entries.put(columns[0], new Entry(columns[1], Long.parseUnsignedLong(columns[2], 16)));
+                }
+            }
+        }
+    }
+
+    static long contentHash(String tag, Collection<? extends Field> fields) {
+        Hasher hasher = HASH_FUNCTION.newHasher().putString(tag, StandardCharsets.UTF_8);
+        for (Field field : fields) {
+            hasher.putByte((byte) 0).putString(field.tag(), StandardCharsets.UTF_8);
+            field.attributes()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> hasher.putByte((byte) 1)
+                            .putString(e.getKey(), StandardCharsets.UTF_8)
+                            .putString(e.getValue(), StandardCharsets.UTF_8));
+            hasher.putByte((byte) 2).putString(field.value(), StandardCharsets.UTF_8);
+        }
+        return hasher.hash().asLong();
+    }
+
+    /**
+     * Returns whether the publication is new, has a newer mdate or has changed
+     * since the last upload, and records its current state.
+     */
+    public boolean accept(String key, String tag, String mdate, Collection<? extends Field> fields) {
+        long hash = contentHash(tag, fields);
+        String currentMdate = (mdate != null) ? mdate : "";
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            numNew++;
+        } else if (currentMdate.compareTo(entry.mdate) > 0 || hash != entry.hash) {
+            numUpdated++;
+        } else {
+            numSkipped++;
+            return false;
+        }
+        entries.put(key, new Entry(currentMdate, hash));
+        return true;
+    }
+
+    public void save() throws IOException {
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmpPath, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                writer.write(e.getKey());
+                writer.write('\t');
+                writer.write(e.getValue().mdate);
+                writer.write('\t');
+                writer.write(Long.toHexString(e.getValue().hash));
+                writer.write('\n');
+            }
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void report() {
+        System.err.format("delta: %d new, %d updated, %d skipped\n", numNew, numUpdated, numSkipped);
+    }
+}
@@ -0,0 +1,77 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * LRU cache of files open for appending, keeping at most a fixed number of
+ * them open. A file is closed when it is evicted and opened again by
+ * {@link #open} if needed again. The first open of a file truncates it, so
+ * that files left by an earlier run are replaced rather than appended to.
+ */
+@SuppressWarnings("javadoc")
+abstract class FileCache<T extends Closeable> implements AutoCloseable {
+    private final LinkedHashMap<Path, T> files;
+    // Every file opened so far, evicted or not
+    private final Set<Path> opened = new HashSet<>();
+    private IOException evictionFailure = null;
+    private long numOpened = 0;
+
+    protected FileCache(int maxOpenFiles) {
+        files = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, T> eldest) {
+                if (size() <= maxOpenFiles) {
+                    return false;
+                }
+                try {
+                    eldest.getValue().close();
+                } catch (IOException e) {
+                    evictionFailure = e;
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Opens a file for appending, creating it if needed and truncating it
+     * first if asked to.
+     */
+    protected abstract T open(Path path, boolean truncate) throws IOException;
+
+    public T get(Path path) throws IOException {
+        T file = files.get(path);
+        if (file == null) {
+            Files.createDirectories(path.getParent());
+            file = open(path, opened.add(path));
+            files.put(path, file);
+            numOpened++;
+            if (evictionFailure != null) {
+                throw evictionFailure;
+            }
+        }
+        return file;
+    }
+
+    public long getNumOpened() {
+        return numOpened;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = evictionFailure;
+        for (T file : files.values()) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                failure = (failure != null) ? failure : e;
+            }
+        }
+        files.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package dblpjavaparser;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Destination of the graph built from DBLP publications. Writes are MERGE-like:
+ * writing the same row twice has the same effect as writing it once.
+ */
+@SuppressWarnings("javadoc")
+interface GraphSink extends AutoCloseable {
+    /**
+     * Prepares the destination, e.g., creates constraints and indexes.
+     */
+    void prepare();
+
+    /**
+     * Writes a batch of publications atomically. Authors and streams known to
+     * the cache, which may be null, are assumed to exist already.
+     */
+    void writePublications(List<PublicationRow> rows, NodeCache cache);
+
+    default CompletionStage<?> writePublicationsAsync(List<PublicationRow> rows, NodeCache cache) {
+        try {
+            writePublications(rows, cache);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Told of each committed transaction, with the number of publications it
+     * wrote and its time in nanoseconds.
+     */
+    @FunctionalInterface
+    interface TransactionListener {
+        void transaction(int numPublications, long nanos);
+    }
+
+    /**
+     * Writes a single publication, telling the listener of each transaction it
+     * takes; sinks may override this with a path that does not need a
+     * {@link PublicationRow}.
+     */
+    default void writePublication(DblpRecord publ, boolean storeAll, TransactionListener listener) {
+        long startTime = System.nanoTime();
+        writePublications(List.of(PublicationRow.of(publ, storeAll)), null);
+        listener.transaction(1, System.nanoTime() - startTime);
+    }
+
+    void writeCitationStubs(List<String> keys);
+
+    /**
+     * Writes CITED_BY edges given as maps with {@code cited} and {@code citing}
+     * keys, between publications that already exist.
+     */
+    void writeCitations(List<Map<String, Object>> edges);
+
+    /**
+     * Fills the cache with authors and streams that already exist.
+     */
+    default void seed(NodeCache cache) {
+    }
+
+    /**
+     * Sets a listener called whenever the sink retries a transaction.
+     */
+    default void setRetryListener(Runnable listener) {
+    }
+
+    @Override
+    void close();
+}
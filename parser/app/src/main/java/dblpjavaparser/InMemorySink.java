@@ -0,0 +1,97 @@
+package dblpjavaparser;
+
+import java.util.*;
+
+/**
+ * Sink building the graph in memory with the same MERGE semantics as
+ * {@link Neo4jSink}, for benchmarks and tests without a database. Lookups are
+ * free here, so there is no {@link NodeCache} to consult and App refuses one
+ * for this sink. Nodes and edges are kept by the
+ * int ids of their keys and names in off-heap {@link StringDictionary}s, and
+ * edges are packed into longs in {@link LongHashSet}s.
+ */
+@SuppressWarnings("javadoc")
+class InMemorySink implements GraphSink {
+    // A key or name is only added to its dictionary along with its node
+    private final StringDictionary publicationKeys = new StringDictionary();
+    private final StringDictionary authorNames = new StringDictionary();
+    private final StringDictionary streamKeys = new StringDictionary();
+    // Properties of the nodes by id
+    private final List<Map<String, Object>> publications = new ArrayList<>();
+    private final List<Map<String, Object>> authors = new ArrayList<>();
+    // Edges as the id of their source in the upper and of their target in the lower 32 bits;
+    // AUTHORED_BY edges are followed by their order and num_authors, packed the same way
+    private final LongHashSet authoredBy = new LongHashSet(2);
+    private final LongHashSet groupedBy = new LongHashSet(1);
+    private final LongHashSet citedBy = new LongHashSet(1);
+
+    @Override
+    public void prepare() {
+    }
+
+    @Override
+    public synchronized void writePublications(List<PublicationRow> rows, NodeCache cache) {
+        for (PublicationRow row : rows) {
+            int publicationId = mergeNode(publicationKeys, publications, row.key);
+            publications.get(publicationId).putAll(row.properties);
+
+            if (!row.streamKey.isEmpty()) {
+                groupedBy.add(edge(publicationId, streamKeys.idOf(row.streamKey)));
+            }
+
+            for (String citedKey : row.citedKeys) {
+                citedBy.add(edge(mergeNode(publicationKeys, publications, citedKey), publicationId));
+            }
+
+            int numAuthors = row.authors.size();
+            for (int i = 0; i < numAuthors; i++) {
+                PublicationRow.Author author = row.authors.get(i);
+                int authorId = mergeNode(authorNames, authors, author.name);
+                authors.get(authorId).putAll(author.properties);
+                authoredBy.add(edge(publicationId, authorId), edge(i + 1, numAuthors));
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a node, creating it with no properties if it is new.
+     */
+    private static int mergeNode(StringDictionary ids, List<Map<String, Object>> properties, String name) {
+        int id = ids.idOf(name);
+        if (id == properties.size()) {
+            properties.add(new HashMap<>());
+        }
+        return id;
+    }
+
+    private static long edge(int source, int target) {
+        return ((long) source << 32) | (target & 0xffffffffL);
+    }
+
+    @Override
+    public synchronized void writeCitationStubs(List<String> keys) {
+        keys.forEach(key -> mergeNode(publicationKeys, publications, key));
+    }
+
+    @Override
+    public synchronized void writeCitations(List<Map<String, Object>> edges) {
+        for (Map<String, Object> edge : edges) {
+            int cited = publicationKeys.find((String) edge.get("cited"));
+            int citing = publicationKeys.find((String) edge.get("citing"));
+            if (cited >= 0 && citing >= 0) {
+                citedBy.add(edge(cited, citing));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        System.err.format("memory sink: %d publications, %d authors, %d streams, "
+                + "%d AUTHORED_BY, %d GROUPED_BY, %d CITED_BY\n",
+                publications.size(), authors.size(), streamKeys.size(),
+                authoredBy.size(), groupedBy.size(), citedBy.size());
+        System.err.format("memory sink: %.1f MB of keys and names off the heap\n",
+                (publicationKeys.getOffHeapBytes() + authorNames.getOffHeapBytes()
+                        + streamKeys.getOffHeapBytes()) / 1e6);
+    }
+}
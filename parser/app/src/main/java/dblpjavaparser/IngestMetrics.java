@@ -0,0 +1,240 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import javax.management.*;
+
+/**
+ * Counters and latency histograms of an upload, exposed through JMX and
+ * optionally through a Prometheus text file rewritten periodically.
+ */
+@SuppressWarnings("javadoc")
+class IngestMetrics implements IngestMetricsMBean {
+    /**
+     * Histogram of microsecond values in logarithmic buckets, four per power of
+     * two, so that percentiles are accurate within 25%.
+     */
+    static class Histogram {
+        private static final int NUM_BUCKETS = 256;
+
+        private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        private static int bucketOf(long value) {
+            if (value < 4) {
+                return (int) Math.max(value, 0);
+            }
+            int exp = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) ((value >>> (exp - 2)) & 3);
+            return 4 * (exp - 1) + sub;
+        }
+
+        private static long upperBoundOf(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            int exp = bucket / 4 + 1;
+            int sub = bucket % 4;
+            return ((5L + sub) << (exp - 2)) - 1;
+        }
+
+        void record(long value) {
+            counts.incrementAndGet(bucketOf(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        long sum() {
+            return sum.get();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        double mean() {
+            long n = count.get();
+            return (n > 0) ? (double) sum.get() / n : 0.0;
+        }
+
+        long percentile(double q) {
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), max.get());
+                }
+            }
+            return max.get();
+        }
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong publications = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final Histogram latencyMicros = new Histogram();
+    private final Histogram batchSizes = new Histogram();
+    private ScheduledExecutorService reporter = null;
+
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(this, new ObjectName("dblpjavaparser:type=IngestMetrics"));
+        } catch (JMException e) {
+            System.err.format("metrics: failed to register the MBean: %s\n", e);
+        }
+    }
+
+    public void startReporting(Path path, long intervalSeconds) {
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            try {
+                writePrometheus(path);
+            } catch (IOException e) {
+                System.err.format("metrics: failed to write %s: %s\n", path, e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void stopReporting(Path path) throws IOException {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            writePrometheus(path);
+        }
+    }
+
+    public void transaction(int batchSize, long nanos) {
+        latencyMicros.record(nanos / 1000);
+        batchSizes.record(batchSize);
+    }
+
+    public void committed(int numPublications) {
+        publications.addAndGet(numPublications);
+    }
+
+    public void retried() {
+        retries.incrementAndGet();
+    }
+
+    private double elapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    @Override
+    public long getPublications() {
+        return publications.get();
+    }
+
+    @Override
+    public double getPublicationsPerSecond() {
+        double seconds = elapsedSeconds();
+        return (seconds > 0) ? publications.get() / seconds : 0.0;
+    }
+
+    @Override
+    public long getTransactions() {
+        return latencyMicros.count();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.get();
+    }
+
+    @Override
+    public double getMeanBatchSize() {
+        return batchSizes.mean();
+    }
+
+    @Override
+    public long getMaxBatchSize() {
+        return batchSizes.max();
+    }
+
+    @Override
+    public double getTransactionLatencyP50Millis() {
+        return latencyMicros.percentile(0.5) / 1000.0;
+    }
+
+    @Override
+    public double getTransactionLatencyP99Millis() {
+        return latencyMicros.percentile(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getTransactionLatencyMaxMillis() {
+        return latencyMicros.max() / 1000.0;
+    }
+
+    @Override
+    public long getHeapUsedBytes() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long getPeakHeapBytes() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    public void writePrometheus(Path path) throws IOException {
+        StringBuilder out = new StringBuilder();
+        out.append("# TYPE dblp_ingest_publications_total counter\n");
+        out.append("dblp_ingest_publications_total ").append(getPublications()).append('\n');
+        out.append("# TYPE dblp_ingest_publications_per_second gauge\n");
+        out.append("dblp_ingest_publications_per_second ").append(getPublicationsPerSecond()).append('\n');
+        out.append("# TYPE dblp_ingest_retries_total counter\n");
+        out.append("dblp_ingest_retries_total ").append(getRetries()).append('\n');
+        out.append("# TYPE dblp_ingest_transaction_seconds summary\n");
+        for (double q : new double[] { 0.5, 0.9, 0.99 }) {
+            out.append("dblp_ingest_transaction_seconds{quantile=\"").append(q).append("\"} ")
+                    .append(latencyMicros.percentile(q) / 1e6).append('\n');
+        }
+        out.append("dblp_ingest_transaction_seconds_sum ").append(latencyMicros.sum() / 1e6).append('\n');
+        out.append("dblp_ingest_transaction_seconds_count ").append(latencyMicros.count()).append('\n');
+        out.append("# TYPE dblp_ingest_transaction_seconds_max gauge\n");
+        out.append("dblp_ingest_transaction_seconds_max ").append(latencyMicros.max() / 1e6).append('\n');
+        out.append("# TYPE dblp_ingest_batch_size summary\n");
+        out.append("dblp_ingest_batch_size_sum ").append(batchSizes.sum()).append('\n');
+        out.append("dblp_ingest_batch_size_count ").append(batchSizes.count()).append('\n');
+        out.append("# TYPE dblp_ingest_heap_used_bytes gauge\n");
+        out.append("dblp_ingest_heap_used_bytes ").append(getHeapUsedBytes()).append('\n');
+
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(tmpPath, out, StandardCharsets.UTF_8);
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void printSummary() {
+        System.err.format("metrics: %d publs in %.2f (sec), %.1f publs/sec\n",
+                getPublications(), elapsedSeconds(), getPublicationsPerSecond());
+        System.err.format("metrics: %d transactions, batch size mean %.1f max %d, %d retries\n",
+                getTransactions(), getMeanBatchSize(), getMaxBatchSize(), getRetries());
+        System.err.format("metrics: transaction latency p50 %.1f ms, p99 %.1f ms, max %.1f ms\n",
+                getTransactionLatencyP50Millis(), getTransactionLatencyP99Millis(),
+                getTransactionLatencyMaxMillis());
+        System.err.format("metrics: peak heap %.1f MB\n", getPeakHeapBytes() / 1e6);
+    }
+}
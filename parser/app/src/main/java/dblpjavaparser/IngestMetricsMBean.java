@@ -0,0 +1,27 @@
+package dblpjavaparser;
+
+/**
+ * JMX view of {@link IngestMetrics}; JMX requires this interface to be public.
+ */
+@SuppressWarnings("javadoc")
+public interface IngestMetricsMBean {
+    long getPublications();
+
+    double getPublicationsPerSecond();
+
+    long getTransactions();
+
+    long getRetries();
+
+    double getMeanBatchSize();
+
+    long getMaxBatchSize();
+
+    double getTransactionLatencyP50Millis();
+
+    double getTransactionLatencyP99Millis();
+
+    double getTransactionLatencyMaxMillis();
+
+    long getHeapUsedBytes();
+}
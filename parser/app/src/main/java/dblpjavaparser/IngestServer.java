@@ -0,0 +1,301 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.sun.net.httpserver.*;
+
+/**
+ * Resident ingestion server keeping one {@link App} and its sink warm across
+ * uploads. Jobs are submitted over HTTP on the loopback interface and run on a
+ * fixed pool of threads with a bounded queue:
+ *
+ * <pre>
+ * POST /jobs?path=/abs/file.xml[&amp;store_all=true][&amp;wait=false]
+ * POST /jobs[?store_all=true]    (XML in the request body)
+ * GET  /jobs/{id}
+ * GET  /health
+ * </pre>
+ *
+ * By default a POST waits for the job and returns its result as JSON, with the
+ * keys of the uploaded publications in {@code pkeys}.
+ */
+@SuppressWarnings("javadoc")
+class IngestServer implements AutoCloseable {
+    private static final int MAX_FINISHED_JOBS = 1000;
+
+    private class Job {
+        final long id = nextJobId.incrementAndGet();
+        final String path;
+        final byte[] body;
+        final boolean storeAll;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final List<String> keys = new ArrayList<>();
+        volatile String status = "queued";
+        volatile String error = null;
+        volatile long startTime;
+        volatile long endTime;
+
+        Job(String path, byte[] body, boolean storeAll) {
+            this.path = path;
+            this.body = body;
+            this.storeAll = storeAll;
+        }
+
+        InputStream open() throws IOException {
+            return (path != null) ? XmlInput.open(path) : new ByteArrayInputStream(body);
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", id);
+            map.put("status", status);
+            if (path != null) {
+                map.put("path", path);
+            }
+            map.put("numPublications", keys.size());
+            if (endTime > 0) {
+                map.put("elapsedMs", (endTime - startTime) / 1000000);
+                map.put("pkeys", List.copyOf(keys));
+            }
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+    }
+
+    private final App app;
+    private final String dtdFilename;
+    private final int batchSize;
+    private final HttpServer server;
+    private final ThreadPoolExecutor jobExecutor;
+    private final ExecutorService requestExecutor = Executors.newCachedThreadPool();
+    private final AtomicLong nextJobId = new AtomicLong();
+    private final Map<Long, Job> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Job> eldest) {
+            return size() > MAX_FINISHED_JOBS && eldest.getValue().done.isDone();
+        }
+    });
+    private final CountDownLatch shutdownRequested = new CountDownLatch(1);
+
+    public IngestServer(App app, String dtdFilename, int port, int numThreads, int queueCapacity, int batchSize)
+            throws IOException {
+        this.app = app;
+        this.dtdFilename = dtdFilename;
+        this.batchSize = Math.max(batchSize, 1);
+
+        jobExecutor = new ThreadPoolExecutor(numThreads, numThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/jobs", this::handleJobs);
+        server.createContext("/health", this::handleHealth);
+        server.setExecutor(requestExecutor);
+        server.start();
+
+        System.err.format("serving on http://%s:%d/jobs with %d threads\n",
+                server.getAddress().getHostString(), server.getAddress().getPort(), numThreads);
+    }
+
+    /**
+     * Blocks until {@link #requestShutdown()} is called, e.g., from a shutdown
+     * hook; the caller then closes the server.
+     */
+    public void awaitShutdown() throws InterruptedException {
+        shutdownRequested.await();
+    }
+
+    public void requestShutdown() {
+        shutdownRequested.countDown();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        jobExecutor.shutdown();
+        try {
+            jobExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        requestExecutor.shutdownNow();
+    }
+
+    private void execute(Job job) {
+        job.status = "running";
+        job.startTime = System.nanoTime();
+        List<PublicationRow> batch = new ArrayList<>(batchSize);
+        try (InputStream in = job.open()) {
+            DblpRecordReader.parse(in, dtdFilename, r -> {
+                if (r.isPublication()) {
+                    batch.add(PublicationRow.of(r, job.storeAll));
+                    if (batch.size() >= batchSize) {
+                        write(job, batch);
+                    }
+                }
+            });
+            write(job, batch);
+            job.status = "done";
+        } catch (Exception e) {
+            job.status = "failed";
+            job.error = String.valueOf(e);
+        } finally {
+            job.endTime = System.nanoTime();
+            System.err.format("job %d: %s, %d publs in %.1f ms\n", job.id, job.status, job.keys.size(),
+                    (job.endTime - job.startTime) / 1e6);
+            job.done.complete(null);
+        }
+    }
+
+    private void write(Job job, List<PublicationRow> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        app.addPublications(batch);
+        app.getMetrics().committed(batch.size());
+        synchronized (job) {
+            batch.forEach(row -> job.keys.add(row.key));
+        }
+        batch.clear();
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> params = queryParameters(exchange.getRequestURI());
+
+            if (method.equals("GET") && path.startsWith("/jobs/")) {
+                Job job;
+                try {
+                    job = jobs.get(Long.parseLong(path.substring("/jobs/".length())));
+                } catch (NumberFormatException e) {
+                    job = null;
+                }
+                if (job == null) {
+                    respond(exchange, 404, Map.of("error", "no such job"));
+                } else {
+                    respond(exchange, 200, job.toMap());
+                }
+                return;
+            }
+            if (!method.equals("POST") || !path.equals("/jobs")) {
+                respond(exchange, 405, Map.of("error", "expected POST /jobs or GET /jobs/{id}"));
+                return;
+            }
+
+            String xmlPath = params.get("path");
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (xmlPath == null && body.length == 0) {
+                respond(exchange, 400, Map.of("error", "expected a path parameter or XML in the body"));
+                return;
+            }
+            boolean storeAll = Boolean.parseBoolean(params.getOrDefault("store_all",
+                    String.valueOf(App.flag_store_all)));
+            Job job = new Job(xmlPath, (xmlPath == null) ? body : null, storeAll);
+
+            jobs.put(job.id, job);
+            try {
+                jobExecutor.execute(() -> execute(job));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.id);
+                respond(exchange, 503, Map.of("error", "job queue is full"));
+                return;
+            }
+
+            if (!Boolean.parseBoolean(params.getOrDefault("wait", "true"))) {
+                respond(exchange, 202, job.toMap());
+                return;
+            }
+            job.done.join();
+            respond(exchange, job.status.equals("done") ? 200 : 500, job.toMap());
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            respond(exchange, 200, Map.of("status", "ok",
+                    "queued", jobExecutor.getQueue().size(),
+                    "running", jobExecutor.getActiveCount()));
+        }
+    }
+
+    private static Map<String, String> queryParameters(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        if (uri.getRawQuery() == null) {
+            return params;
+        }
+        for (String pair : uri.getRawQuery().split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode((eq < 0) ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = (eq < 0) ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, Map<String, Object> result) throws IOException {
+        byte[] json = toJson(result).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, json.length);
+        exchange.getResponseBody().write(json);
+    }
+
+    static String toJson(Object value) {
+        StringBuilder json = new StringBuilder();
+        appendJson(json, value);
+        return json.toString();
+    }
+
+    private static void appendJson(StringBuilder json, Object value) {
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else if (value instanceof Map<?, ?> map) {
+            json.append('{');
+            String separator = "";
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                json.append(separator);
+                appendJson(json, String.valueOf(e.getKey()));
+                json.append(':');
+                appendJson(json, e.getValue());
+                separator = ",";
+            }
+            json.append('}');
+        } else if (value instanceof Collection<?> collection) {
+            json.append('[');
+            String separator = "";
+            for (Object item : collection) {
+                json.append(separator);
+                appendJson(json, item);
+                separator = ",";
+            }
+            json.append(']');
+        } else {
+            json.append('"');
+            for (char c : value.toString().toCharArray()) {
+                switch (c) {
+                    case '"' -> json.append("\\\"");
+                    case '\\' -> json.append("\\\\");
+                    case '\n' -> json.append("\\n");
+                    case '\r' -> json.append("\\r");
+                    case '\t' -> json.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                    }
+                }
+            }
+            json.append('"');
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package dblpjavaparser;
+
+import java.util.*;
+
+/**
+ * Open addressing hash set of keys made of one or two longs, such as edges
+ * packed by their source and target ids, stored in a long array without
+ * boxing.
+ */
+@SuppressWarnings("javadoc")
+class LongHashSet {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private final int width;
+    // width longs per slot
+    private long[] keys;
+    private BitSet used;
+    private int capacity;
+    private int size = 0;
+
+    public LongHashSet(int width) {
+        if (width != 1 && width != 2) {
+            throw new IllegalArgumentException("Keys are one or two longs, not " + width);
+        }
+        this.width = width;
+        this.capacity = INITIAL_CAPACITY;
+        this.keys = new long[capacity * width];
+        this.used = new BitSet(capacity);
+    }
+
+    public boolean add(long key) {
+        return add(key, 0);
+    }
+
+    /**
+     * Adds a key of two longs; the second is ignored if keys are one long.
+     */
+    public boolean add(long first, long second) {
+        if ((size + 1) * 2 > capacity) {
+            rehash();
+        }
+        int slot = findSlot(first, second);
+        if (used.get(slot)) {
+            return false;
+        }
+        used.set(slot);
+        keys[slot * width] = first;
+        if (width == 2) {
+            keys[slot * width + 1] = second;
+        }
+        size++;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the slot holding the key, or the free slot where it belongs.
+     */
+    private int findSlot(long first, long second) {
+        int mask = capacity - 1;
+        for (int slot = hash(first, (width == 2) ? second : 0) & mask;; slot = (slot + 1) & mask) {
+            if (!used.get(slot)
+                    || (keys[slot * width] == first && (width == 1 || keys[slot * width + 1] == second))) {
+                return slot;
+            }
+        }
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        BitSet oldUsed = used;
+        capacity *= 2;
+        keys = new long[capacity * width];
+        used = new BitSet(capacity);
+        for (int slot = oldUsed.nextSetBit(0); slot >= 0; slot = oldUsed.nextSetBit(slot + 1)) {
+            long first = oldKeys[slot * width];
+            long second = (width == 2) ? oldKeys[slot * width + 1] : 0;
+            int newSlot = findSlot(first, second);
+            used.set(newSlot);
+            keys[newSlot * width] = first;
+            if (width == 2) {
+                keys[newSlot * width + 1] = second;
+            }
+        }
+    }
+
+    /**
+     * The final mix of MurmurHash3 over both longs, so that the low bits used
+     * for slots are well distributed.
+     */
+    private static int hash(long first, long second) {
+        long h = first * 0x9e3779b97f4a7c15L + second;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe1b1ba87L;
+        return (int) (h ^ (h >>> 33));
+    }
+}
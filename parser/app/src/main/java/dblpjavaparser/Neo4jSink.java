@@ -0,0 +1,287 @@
+package dblpjavaparser;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.dblp.mmdb.*;
+import org.neo4j.driver.*;
+import org.neo4j.driver.async.*;
+
+@SuppressWarnings("javadoc")
+class Neo4jSink implements GraphSink {
+    private final Driver driver;
+    private volatile Runnable retryListener = () -> {};
+
+    private static final String BATCH_QUERY = String.join("\n",
+            "UNWIND $rows AS row",
+            "MERGE (p: Publication {key: row.key})",
+            "SET p += row.properties",
+            "FOREACH (streamKey IN row.streamKeys |",
+            "  MERGE (s: Stream {key: streamKey})",
+            "  MERGE (p)-[:GROUPED_BY]->(s))",
+            "FOREACH (key_cited IN row.citedKeys |",
+            "  MERGE (p_cited: Publication {key: key_cited})",
+            "  MERGE (p_cited) -[:CITED_BY]-> (p))",
+            "FOREACH (author IN row.authors |",
+            "  MERGE (a: Author {name: author.name})",
+            "  SET a += author.properties",
+            "  MERGE (p) -[:AUTHORED_BY {order: author.order, num_authors: row.numAuthors}]-> (a))",
+            "WITH p, row",
+            "CALL {",
+            "  WITH p, row",
+            "  UNWIND row.knownStreamKeys AS streamKey",
+            "  MATCH (s: Stream {key: streamKey})",
+            "  MERGE (p)-[:GROUPED_BY]->(s)",
+            "}",
+            "CALL {",
+            "  WITH p, row",
+            "  UNWIND row.knownAuthors AS author",
+            "  MATCH (a: Author {name: author.name})",
+            "  SET a += author.properties",
+            "  MERGE (p) -[:AUTHORED_BY {order: author.order, num_authors: row.numAuthors}]-> (a)",
+            "}");
+    private static final String STUB_QUERY = String.join("\n",
+            "UNWIND $rows AS key",
+            "MERGE (:Publication {key: key})");
+    private static final String CITATION_QUERY = String.join("\n",
+            "UNWIND $rows AS edge",
+            "MATCH (p_cited: Publication {key: edge.cited})",
+            "MATCH (p: Publication {key: edge.citing})",
+            "MERGE (p_cited) -[:CITED_BY]-> (p)");
+
+    public Neo4jSink(String uri, String user, String password) {
+        this(uri, user, password, Duration.ofSeconds(30));
+    }
+
+    /**
+     * Transactions are retried by the driver after deadlocks and transient
+     * failures, with backoff, for at most the given time.
+     */
+    public Neo4jSink(String uri, String user, String password, Duration maxRetryTime) {
+        driver = GraphDatabase.driver(uri, AuthTokens.basic(user, password),
+                Config.builder().withMaxTransactionRetryTime(maxRetryTime.toMillis(), TimeUnit.MILLISECONDS)
+                        .build());
+    }
+
+    @Override
+    public void setRetryListener(Runnable listener) {
+        retryListener = listener;
+    }
+
+    @Override
+    public void close() {
+        driver.close();
+    }
+
+    @Override
+    public void prepare() {
+        createConstraints();
+        createIndexes();
+    }
+
+    public void createConstraints() {
+        try (Session session = driver.session()) {
+            session.writeTransaction(tx -> tx.run(
+                    "CREATE CONSTRAINT UniquePublicationConstraint IF NOT EXISTS " +
+                            "FOR (p:Publication) REQUIRE p.key IS UNIQUE"));
+
+            session.writeTransaction(tx -> tx.run(
+                    "CREATE CONSTRAINT UniqueAuthorConstraint IF NOT EXISTS " +
+                            "FOR (a:Author) REQUIRE a.name IS UNIQUE"));
+
+            session.writeTransaction(tx -> tx.run(
+                    "CREATE CONSTRAINT UniqueStreamConstraint IF NOT EXISTS " +
+                            "FOR (s:Stream) REQUIRE s.key IS UNIQUE"));
+        }
+    }
+
+    public void createIndexes() {
+        try (Session session = driver.session()) {
+            session.writeTransaction(tx -> tx.run(
+                    "CREATE INDEX PublicationIndex IF NOT EXISTS " +
+                            "FOR (p:Publication) ON (p.key)"));
+
+            session.writeTransaction(tx -> tx.run(
+                    "CREATE INDEX AuthorIndex IF NOT EXISTS " +
+                            "FOR (a:Author) ON (a.name)"));
+
+            session.writeTransaction(tx -> tx.run(
+                    "CREATE INDEX StreamIndex IF NOT EXISTS " +
+                            "FOR (s:Stream) ON (s.key)"));
+        }
+    }
+
+    Result createPublResult(Transaction tx, DblpRecord publ, String streamKey, Collection<String> citedKeys,
+            boolean storeAll) {
+        Map<String, Object> params;
+        if (storeAll) {
+            params = publ.fields()
+                    .filter(f -> !PublicationRow.FIELDS_EXCLUDED_FOR_PUBL.contains(f.tag()))
+                    .collect(Collectors.toMap(Field::tag, Field::value, (p1, p2) -> p1));
+            params.put("type", publ.getTag());
+        } else {
+            params = new HashMap<String, Object>();
+        }
+
+        StringBuilder query = new StringBuilder();
+        query.append("MERGE (p: Publication {key: $key})\n");
+        if (streamKey != "") {
+            query.append("MERGE (s: Stream {key: $streamKey})\n");
+            query.append("MERGE (p)-[:GROUPED_BY]->(s)\n");
+        }
+
+        if (storeAll) {
+            query.append("SET ");
+            params.keySet().stream().forEach(k -> {
+                query.append("p." + k + " = ");
+                if (k.equals("year")) {
+                    query.append("toInteger(");
+                }
+                query.append("$" + k);
+                if (k.equals("year")) {
+                    query.append(")");
+                }
+                query.append(", ");
+            });
+            query.setLength(query.length() - 2);
+            query.append("\n");
+        }
+        params.put("key", publ.getKey());
+        if (streamKey != "") {
+            params.put("streamKey", streamKey);
+        }
+
+        if (citedKeys.size() > 0) {
+            query.append("FOREACH (key_cited IN $citedKeys |\n");
+            query.append("  MERGE (p_cited: Publication {key: key_cited})\n");
+            query.append("  MERGE (p_cited) -[:CITED_BY]-> (p))\n");
+
+            params.put("citedKeys", citedKeys);
+        }
+
+        return tx.run(query.toString(), params);
+    };
+
+    Result createAuthorResult(Transaction tx, String publKey, Field authorField,
+            int authorshipOrder, int numAuthors, boolean storeAll) {
+        Map<String, Object> params = authorField.attributes()
+                .collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue(), (p1, p2) -> p1));
+
+        StringBuilder query = new StringBuilder();
+        query.append("MATCH (p: Publication {key: $publKey})\n");
+
+        query.append("MERGE (a: Author {name: $name}) ");
+        if (storeAll && (params.size() > 0)) {
+            query.append("SET ");
+            params.keySet().stream().forEach(k -> {
+                query.append("a." + k + " = $" + k + ", ");
+            });
+            query.setLength(query.length() - 2);
+        }
+        query.append("\n");
+
+        query.append("MERGE (p) -[:AUTHORED_BY {order: $authorshipOrder, num_authors: $numAuthors}]-> (a)");
+
+        params.put("name", authorField.value());
+        params.put("publKey", publKey);
+        params.put("authorshipOrder", authorshipOrder);
+        params.put("numAuthors", numAuthors);
+
+        return tx.run(query.toString(), params);
+    }
+
+    /**
+     * Writes the publication in one transaction and each of its authors in
+     * another, as the original uploader did.
+     */
+    @Override
+    public void writePublication(DblpRecord publ, boolean storeAll, TransactionListener listener) {
+        String publKey = publ.getKey();
+        String streamKey = PublicationRow.getStreamKey(publKey);
+        Collection<Field> authorFields = publ.getFields("author");
+        Collection<String> citedKeys = publ.fields("cite")
+                .filter(f -> !f.value().equals("..."))
+                .map(f -> f.value()).toList();
+        int numAuthors = authorFields.size();
+
+        try (Session session = driver.session()) {
+            writeTransaction(session, 1, listener,
+                    tx -> createPublResult(tx, publ, streamKey, citedKeys, storeAll));
+
+            AtomicInteger index = new AtomicInteger();
+            authorFields.stream().forEach(authorField -> {
+                int i = index.incrementAndGet();
+                // the publication is counted by its own transaction
+                writeTransaction(session, 0, listener, tx -> createAuthorResult(tx, publKey, authorField,
+                        i, numAuthors, storeAll));
+            });
+        }
+    }
+
+    private static <T> void writeTransaction(Session session, int numPublications, TransactionListener listener,
+            TransactionWork<T> work) {
+        long startTime = System.nanoTime();
+        session.writeTransaction(work);
+        listener.transaction(numPublications, System.nanoTime() - startTime);
+    }
+
+    private void writeBatch(String query, List<?> rows) {
+        try (Session session = driver.session()) {
+            AtomicInteger attempts = new AtomicInteger();
+            session.writeTransaction(tx -> {
+                // the driver calls the transaction function again on each retry
+                if (attempts.getAndIncrement() > 0) {
+                    retryListener.run();
+                }
+                return tx.run(query, Map.of("rows", rows)).consume();
+            });
+        }
+    }
+
+    @Override
+    public void writePublications(List<PublicationRow> rows, NodeCache cache) {
+        writeBatch(BATCH_QUERY, rows.stream().map(row -> row.toParameters(cache)).toList());
+    }
+
+    @Override
+    public CompletionStage<?> writePublicationsAsync(List<PublicationRow> rows, NodeCache cache) {
+        List<Map<String, Object>> params = rows.stream().map(row -> row.toParameters(cache)).toList();
+
+        AsyncSession session = driver.asyncSession();
+        AtomicInteger attempts = new AtomicInteger();
+        return session.writeTransactionAsync(tx -> {
+            if (attempts.getAndIncrement() > 0) {
+                retryListener.run();
+            }
+            return tx.runAsync(BATCH_QUERY, Map.of("rows", params)).thenCompose(ResultCursor::consumeAsync);
+        })
+                .whenComplete((summary, error) -> session.closeAsync());
+    }
+
+    @Override
+    public void writeCitationStubs(List<String> keys) {
+        writeBatch(STUB_QUERY, keys);
+    }
+
+    @Override
+    public void writeCitations(List<Map<String, Object>> edges) {
+        writeBatch(CITATION_QUERY, edges);
+    }
+
+    @Override
+    public void seed(NodeCache cache) {
+        try (Session session = driver.session()) {
+            session.readTransaction(tx -> tx.run(
+                    "MATCH (a: Author) RETURN a.name AS name LIMIT $limit", Map.of("limit", cache.getMaxSize()))
+                    .list(r -> r.get("name").asString()))
+                    .forEach(cache::addAuthor);
+            session.readTransaction(tx -> tx.run(
+                    "MATCH (s: Stream) RETURN s.key AS key LIMIT $limit", Map.of("limit", cache.getMaxSize()))
+                    .list(r -> r.get("key").asString()))
+                    .forEach(cache::addStream);
+        }
+    }
+}
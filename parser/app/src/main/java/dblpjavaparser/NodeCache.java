@@ -0,0 +1,67 @@
+package dblpjavaparser;
+
+import java.util.*;
+
+import com.google.common.cache.*;
+
+/**
+ * Bounded cache of Author names and Stream keys known to exist in the graph
+ * sink, so that batches can MATCH those nodes instead of MERGEing them. Names are only
+ * added after the transaction creating them has committed. The cache assumes
+ * that nodes are not deleted while an upload is running.
+ */
+@SuppressWarnings("javadoc")
+class NodeCache {
+    private final long maxSize;
+    private final Cache<String, Boolean> authors;
+    private final Cache<String, Boolean> streams;
+
+    public NodeCache(long maxSize) {
+        this.maxSize = maxSize;
+        authors = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+        streams = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+    }
+
+    public boolean isKnownAuthor(String name) {
+        return authors.getIfPresent(name) != null;
+    }
+
+    public boolean isKnownStream(String key) {
+        return streams.getIfPresent(key) != null;
+    }
+
+    public void added(Collection<PublicationRow> rows) {
+        for (PublicationRow row : rows) {
+            if (!row.streamKey.isEmpty()) {
+                streams.put(row.streamKey, Boolean.TRUE);
+            }
+            row.authors.forEach(author -> authors.put(author.name, Boolean.TRUE));
+        }
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public void addAuthor(String name) {
+        authors.put(name, Boolean.TRUE);
+    }
+
+    public void addStream(String key) {
+        streams.put(key, Boolean.TRUE);
+    }
+
+    public void reportSeeded() {
+        System.err.format("node cache: seeded with %d authors, %d streams\n", authors.size(), streams.size());
+    }
+
+    public void report() {
+        report("authors", authors.stats());
+        report("streams", streams.stats());
+    }
+
+    private static void report(String name, CacheStats stats) {
+        System.err.format("node cache: %s hit rate %.1f%% (%d hits, %d misses, %d evictions)\n",
+                name, stats.hitRate() * 100, stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+}
@@ -0,0 +1,29 @@
+package dblpjavaparser;
+
+import java.util.*;
+
+/**
+ * Sink discarding everything, to measure parsing and transformation alone.
+ */
+@SuppressWarnings("javadoc")
+class NoopSink implements GraphSink {
+    @Override
+    public void prepare() {
+    }
+
+    @Override
+    public void writePublications(List<PublicationRow> rows, NodeCache cache) {
+    }
+
+    @Override
+    public void writeCitationStubs(List<String> keys) {
+    }
+
+    @Override
+    public void writeCitations(List<Map<String, Object>> edges) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
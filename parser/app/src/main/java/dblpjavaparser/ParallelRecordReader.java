@@ -0,0 +1,185 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Parses an uncompressed DBLP XML file on a fork-join pool. The file is split
+ * into byte ranges at top-level record boundaries, and each range is parsed as
+ * a document of its own, with the prolog of the file (and so the DTD and its
+ * entities) prepended and the root element closed.
+ */
+@SuppressWarnings("javadoc")
+class ParallelRecordReader {
+    private static final long MIN_CHUNK_SIZE = 4 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_BUFFER_SIZE = 1 << 16;
+    private static final List<byte[]> RECORD_TAGS = List.of(
+            "article", "inproceedings", "proceedings", "book", "incollection",
+            "phdthesis", "mastersthesis", "www", "person", "data").stream()
+            .map(tag -> ("\n<" + tag).getBytes(StandardCharsets.US_ASCII)).toList();
+    private static final byte[] ROOT_END = "</dblp>".getBytes(StandardCharsets.US_ASCII);
+
+    private ParallelRecordReader() {
+    }
+
+    public static List<DblpRecord> publications(String xmlFilename, String dtdFilename, int parallelism)
+            throws IOException, SAXException {
+        try (FileChannel channel = FileChannel.open(Paths.get(xmlFilename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long firstRecord = findRecordStart(channel, 0, size);
+            long rootEnd = findRootEnd(channel, firstRecord, size);
+
+            ByteBuffer prolog = ByteBuffer.allocate((int) firstRecord);
+            channel.read(prolog, 0);
+            byte[] header = prolog.array();
+            byte[] footer = "\n</dblp>\n".getBytes(StandardCharsets.US_ASCII);
+
+            long chunkSize = Math.max(MIN_CHUNK_SIZE, (rootEnd - firstRecord) / (parallelism * CHUNKS_PER_THREAD));
+            List<Long> bounds = new ArrayList<>();
+            bounds.add(firstRecord);
+            for (long t = firstRecord + chunkSize; t < rootEnd; t += chunkSize) {
+                long start = findRecordStart(channel, Math.max(t, bounds.get(bounds.size() - 1)), rootEnd);
+                if (start > bounds.get(bounds.size() - 1) && start < rootEnd) {
+                    bounds.add(start);
+                }
+            }
+            bounds.add(rootEnd);
+
+            ValuePool values = new ValuePool();
+            List<Callable<List<DblpRecord>>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.size(); i++) {
+                long start = bounds.get(i);
+                long end = bounds.get(i + 1);
+                tasks.add(() -> parseChunk(channel, start, end, header, footer, dtdFilename, values));
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<DblpRecord> records = new ArrayList<>();
+                for (Future<List<DblpRecord>> f : pool.invokeAll(tasks)) {
+                    records.addAll(f.get());
+                }
+                return records;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                // ForkJoinPool wraps checked exceptions of callables in RuntimeExceptions
+                Throwable cause = e.getCause();
+                while (cause instanceof RuntimeException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                if (cause instanceof SAXException saxException) {
+                    throw saxException;
+                } else if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new IllegalStateException(cause);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private static List<DblpRecord> parseChunk(FileChannel channel, long start, long end, byte[] header,
+            byte[] footer, String dtdFilename, ValuePool pool) throws IOException, SAXException {
+        ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        InputStream in = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(header), new ByteBufferInputStream(chunk),
+                new ByteArrayInputStream(footer))));
+
+        List<DblpRecord> records = new ArrayList<>();
+        try {
+            DblpRecordReader.parse(in, dtdFilename, pool, r -> {
+                if (r.isPublication()) {
+                    records.add(r);
+                }
+            });
+        } catch (SAXException e) {
+            throw new SAXException(String.format("in bytes %d-%d: %s", start, end, e.getMessage()), e);
+        }
+        return records;
+    }
+
+    /**
+     * Returns the offset of the first record start tag at the beginning of a
+     * line at or after {@code from}, or {@code limit} if there is none.
+     */
+    static long findRecordStart(FileChannel channel, long from, long limit) throws IOException {
+        int overlap = RECORD_TAGS.stream().mapToInt(t -> t.length).max().getAsInt();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE + overlap + 1);
+        // Start one byte early so that a tag right at 'from' is preceded by its newline
+        for (long position = Math.max(from - 1, 0); position < limit; position += SCAN_BUFFER_SIZE) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n <= 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < Math.min(n, SCAN_BUFFER_SIZE); i++) {
+                if (bytes[i] == '\n' && position + i + 1 >= from && isRecordStart(bytes, i, n)) {
+                    return Math.min(position + i + 1, limit);
+                }
+            }
+        }
+        return limit;
+    }
+
+    private static boolean isRecordStart(byte[] bytes, int i, int n) {
+        for (byte[] tag : RECORD_TAGS) {
+            int next = i + tag.length;
+            if (next < n && Arrays.equals(bytes, i, next, tag, 0, tag.length)
+                    && (bytes[next] == ' ' || bytes[next] == '>')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long findRootEnd(FileChannel channel, long from, long size) throws IOException {
+        int tail = (int) Math.min(size - from, SCAN_BUFFER_SIZE);
+        ByteBuffer buffer = ByteBuffer.allocate(tail);
+        channel.read(buffer, size - tail);
+        byte[] bytes = buffer.array();
+        for (int i = tail - ROOT_END.length; i >= 0; i--) {
+            if (Arrays.equals(bytes, i, i + ROOT_END.length, ROOT_END, 0, ROOT_END.length)) {
+                return size - tail + i;
+            }
+        }
+        throw new IOException("No closing </dblp> tag found at the end of the file");
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
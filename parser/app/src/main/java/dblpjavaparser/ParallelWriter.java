@@ -0,0 +1,130 @@
+package dblpjavaparser;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+@SuppressWarnings("javadoc")
+class ParallelWriter implements AutoCloseable {
+    private static final PublicationRow END_OF_INPUT = new PublicationRow("", "", Map.of(), List.of(), List.of());
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+
+    private final App app;
+    private final int batchSize;
+    private final List<BlockingQueue<PublicationRow>> queues = new ArrayList<>();
+    private final List<Worker> workers = new ArrayList<>();
+    private volatile Throwable failure;
+
+    public ParallelWriter(App app, int numWorkers, int batchSize) {
+        this.app = app;
+        this.batchSize = Math.max(batchSize, 1);
+
+        for (int i = 0; i < numWorkers; i++) {
+            BlockingQueue<PublicationRow> queue = new ArrayBlockingQueue<>(this.batchSize * 4);
+            Worker worker = new Worker(i, queue);
+            queues.add(queue);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Publications of the same stream always go to the same worker, so that
+     * concurrent transactions rarely MERGE the same Stream node.
+     */
+    private static String partitionKey(PublicationRow row) {
+        return row.streamKey.isEmpty() ? row.key : row.streamKey;
+    }
+
+    public void submit(PublicationRow row) throws InterruptedException {
+        int partition = Math.floorMod(partitionKey(row).hashCode(), queues.size());
+        BlockingQueue<PublicationRow> queue = queues.get(partition);
+        while (!queue.offer(row, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Parallel upload failed", failure);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (int i = 0; i < workers.size(); i++) {
+            Worker worker = workers.get(i);
+            while (worker.isAlive() && !queues.get(i).offer(END_OF_INPUT, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                // the worker is still draining a full queue
+            }
+        }
+        for (Worker worker : workers) {
+            worker.join();
+        }
+        for (Worker worker : workers) {
+            worker.report();
+        }
+        checkFailure();
+    }
+
+    private class Worker extends Thread {
+        private final int index;
+        private final BlockingQueue<PublicationRow> queue;
+        private final List<PublicationRow> batch;
+        private long numWritten = 0;
+        private long busyNanos = 0;
+
+        Worker(int index, BlockingQueue<PublicationRow> queue) {
+            super("neo4j-writer-" + index);
+            this.index = index;
+            this.queue = queue;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (failure == null) {
+                    PublicationRow row = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (row == END_OF_INPUT) {
+                        flush();
+                        return;
+                    }
+                    if (row == null) {
+                        flush();
+                        continue;
+                    }
+                    batch.add(row);
+                    if (batch.size() >= batchSize) {
+                        flush();
+                    }
+                }
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Writes the batch; the driver retries deadlocks and transient failures
+         * within the sink's retry time.
+         */
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            long startTime = System.nanoTime();
+            app.addPublications(batch);
+            busyNanos += System.nanoTime() - startTime;
+            numWritten += batch.size();
+
+            app.committed(batch.stream().map(row -> row.key).toList());
+            batch.clear();
+        }
+
+        void report() {
+            double seconds = busyNanos / 1e9;
+            System.err.format("worker %d: %d publs in %.2f (sec), %.1f publs/sec\n",
+                    index, numWritten, seconds, (seconds > 0) ? numWritten / seconds : 0.0);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+import org.dblp.mmdb.*;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.*;
+
+/**
+ * Parses the XML file with both Mmdb and {@link DblpRecordReader} and reports
+ * the publications whose fields differ, so that the lean parser can be checked
+ * against Mmdb on files with entities, markup or unusual values.
+ */
+@SuppressWarnings("javadoc")
+class ParserCheck {
+    private static final int MAX_REPORTED = 10;
+
+    private static List<String> describe(Stream<Field> fields) {
+        return fields.map(f -> f.tag() + new TreeMap<>(f.getAttributes()) + "=" + f.value())
+                .collect(Collectors.toList());
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("entityExpansionLimit", "10000000");
+
+        ArgumentParser parser = ArgumentParsers.newFor("ParserCheck").build()
+                .defaultHelp(true)
+                .description("Compare the fields of the lean parser with those of Mmdb");
+
+        parser.addArgument("xmlFilename")
+                .help("XML data file to parse, optionally compressed as .gz or .zst");
+        parser.addArgument("dtdFilename")
+                .help("DTD schema file for the XML data");
+
+        Namespace ns = null;
+        try {
+            ns = parser.parseArgs(args);
+        } catch (ArgumentParserException e) {
+            parser.handleError(e);
+            System.exit(1);
+        }
+
+        String xmlFilename = ns.getString("xmlFilename");
+        String dtdFilename = ns.getString("dtdFilename");
+        Mmdb dblp = App.parseQuietly(xmlFilename, dtdFilename);
+
+        AtomicInteger checked = new AtomicInteger();
+        AtomicInteger differing = new AtomicInteger();
+        try (InputStream xml = XmlInput.open(xmlFilename)) {
+            DblpRecordReader.parse(xml, dtdFilename, r -> {
+                if (!r.isPublication()) {
+                    return;
+                }
+                checked.incrementAndGet();
+                Publication publ = dblp.getPublication(r.getKey());
+                List<String> expected = (publ != null) ? describe(publ.fields()) : null;
+                List<String> actual = describe(r.fields());
+                if (!actual.equals(expected) && differing.incrementAndGet() <= MAX_REPORTED) {
+                    System.err.println(r.getKey());
+                    System.err.println("  mmdb: " + expected);
+                    System.err.println("  lean: " + actual);
+                }
+            });
+        }
+        int missing = dblp.numberOfPublications() - checked.get();
+
+        System.out.format("Checked %d publs: %d with differing fields, %d only in Mmdb\n",
+                checked.get(), differing.get(), missing);
+        if (differing.get() > 0 || missing != 0) {
+            System.exit(1);
+        }
+    }
+}
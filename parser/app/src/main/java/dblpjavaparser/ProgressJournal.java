@@ -0,0 +1,90 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Append-only journal of the publication keys committed to Neo4j, one per
+ * line. Keys whose write was committed but not yet synced to disk when the
+ * process died are simply uploaded again on resume, which is harmless since
+ * every write is a MERGE.
+ */
+@SuppressWarnings("javadoc")
+class ProgressJournal implements AutoCloseable {
+    private static final long SYNC_INTERVAL_MILLIS = 1000;
+
+    private final FileChannel channel;
+    private final Set<String> committedKeys = new HashSet<>();
+    private long lastSyncMillis = System.currentTimeMillis();
+
+    public ProgressJournal(Path path, boolean resume) throws IOException {
+        if (resume && Files.exists(path)) {
+            truncateIncompleteLine(path);
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    committedKeys.add(line);
+                }
+            }
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } else {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+
+    public static boolean hasProgress(Path path) throws IOException {
+        return Files.exists(path) && Files.size(path) > 0;
+    }
+
+    /**
+     * Drops a last line torn by a crash, which could otherwise be a prefix of
+     * another key.
+     */
+    private static void truncateIncompleteLine(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            long end = file.length();
+            while (end > 0) {
+                file.seek(end - 1);
+                if (file.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            file.setLength(end);
+        }
+    }
+
+    public int numCommitted() {
+        return committedKeys.size();
+    }
+
+    public boolean isCommitted(String key) {
+        return committedKeys.contains(key);
+    }
+
+    public synchronized void append(Collection<String> keys) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        keys.forEach(key -> lines.append(key).append('\n'));
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(lines.toString());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastSyncMillis >= SYNC_INTERVAL_MILLIS) {
+            channel.force(false);
+            lastSyncMillis = now;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+}
@@ -0,0 +1,141 @@
+package dblpjavaparser;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.dblp.mmdb.*;
+
+@SuppressWarnings("javadoc")
+class PublicationRow {
+    static final Collection<String> FIELDS_EXCLUDED_FOR_PUBL = List.of(
+            "author", "editor", "ee", "isbn", "note",
+            "url", "cite", "crossref");
+
+    static class Author {
+        final String name;
+        final Map<String, Object> properties;
+
+        Author(String name, Map<String, Object> properties) {
+            this.name = name;
+            this.properties = properties;
+        }
+    }
+
+    final String key;
+    final String streamKey;
+    final Map<String, Object> properties;
+    final List<String> citedKeys;
+    final List<Author> authors;
+
+    PublicationRow(String key, String streamKey, Map<String, Object> properties,
+            List<String> citedKeys, List<Author> authors) {
+        this.key = key;
+        this.streamKey = streamKey;
+        this.properties = properties;
+        this.citedKeys = citedKeys;
+        this.authors = authors;
+    }
+
+    public static String getStreamKey(String publKey) {
+        String[] publKeyStrings = publKey.split("/");
+        return (publKeyStrings.length > 2)
+                ? String.join("/", Arrays.copyOf(publKeyStrings, publKeyStrings.length - 1))
+                : "";
+    }
+
+    public static PublicationRow of(Publication publ, boolean storeAll) {
+        return of(publ.getTag(), publ.getKey(), publ.getFields(), storeAll);
+    }
+
+    public static PublicationRow of(DblpRecord record, boolean storeAll) {
+        return of(record.getTag(), record.getKey(), record.getFields(), storeAll);
+    }
+
+    public static PublicationRow of(String tag, String key, Collection<? extends Field> fields,
+            boolean storeAll) {
+        Map<String, Object> properties;
+        if (storeAll) {
+            properties = fields.stream()
+                    .filter(f -> !FIELDS_EXCLUDED_FOR_PUBL.contains(f.tag()))
+                    .collect(Collectors.toMap(Field::tag, f -> (Object) f.value(), (p1, p2) -> p1));
+            properties.computeIfPresent("year", (k, v) -> toInteger((String) v));
+            properties.put("type", tag);
+        } else {
+            properties = new HashMap<String, Object>();
+        }
+
+        List<String> citedKeys = fields.stream()
+                .filter(f -> f.tag().equals("cite") && !f.value().equals("..."))
+                .map(f -> f.value()).toList();
+
+        List<Author> authors = fields.stream()
+                .filter(f -> f.tag().equals("author"))
+                .map(f -> new Author(f.value(), storeAll
+                        ? f.attributes().collect(Collectors.toMap(e -> e.getKey(),
+                                e -> (Object) e.getValue(), (p1, p2) -> p1))
+                        : Map.of()))
+                .toList();
+
+        return new PublicationRow(key, getStreamKey(key), properties, citedKeys, authors);
+    }
+
+    public PublicationRow withoutCitations() {
+        return new PublicationRow(key, streamKey, properties, List.of(), authors);
+    }
+
+    /**
+     * Converts like Cypher's toInteger, which yields null for values that are
+     * not numbers; a null from computeIfPresent drops the property, as SET
+     * does with a null in the per-publication query.
+     */
+    private static Long toInteger(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            try {
+                double d = Double.parseDouble(value.trim());
+                return Double.isFinite(d) ? (long) d : null;
+            } catch (NumberFormatException e2) {
+                return null;
+            }
+        }
+    }
+
+    public Map<String, Object> toParameters() {
+        return toParameters(null);
+    }
+
+    /**
+     * Authors and streams known to the cache are passed separately, so that the
+     * query can MATCH them instead of MERGEing them.
+     */
+    public Map<String, Object> toParameters(NodeCache cache) {
+        List<Map<String, Object>> authorParams = new ArrayList<>(authors.size());
+        List<Map<String, Object>> knownAuthorParams = new ArrayList<>();
+        for (int i = 0; i < authors.size(); i++) {
+            Author author = authors.get(i);
+            Map<String, Object> authorParam = Map.of(
+                    "name", author.name,
+                    "properties", author.properties,
+                    "order", i + 1);
+            if (cache != null && cache.isKnownAuthor(author.name)) {
+                knownAuthorParams.add(authorParam);
+            } else {
+                authorParams.add(authorParam);
+            }
+        }
+
+        boolean isKnownStream = cache != null && !streamKey.isEmpty() && cache.isKnownStream(streamKey);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("key", key);
+        params.put("streamKeys", (streamKey.isEmpty() || isKnownStream) ? List.of() : List.of(streamKey));
+        params.put("knownStreamKeys", isKnownStream ? List.of(streamKey) : List.of());
+        params.put("properties", properties);
+        params.put("citedKeys", citedKeys);
+        params.put("authors", authorParams);
+        params.put("knownAuthors", knownAuthorParams);
+        params.put("numAuthors", authors.size());
+        return params;
+    }
+}
@@ -0,0 +1,126 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Finds the top-level records of an uncompressed DBLP XML file in its
+ * memory-mapped bytes, without parsing them. Only the start tag of each
+ * record is looked at, for its {@code key} and {@code mdate}; a record spans
+ * the bytes from its start tag to the start of the next record, including the
+ * line break after its end tag.
+ */
+@SuppressWarnings("javadoc")
+class RawRecordScanner {
+    // Mapped at a time, plus enough to read a start tag crossing the end
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final int MAX_START_TAG_LENGTH = 1 << 12;
+    private static final List<byte[]> RECORD_TAGS = List.of(
+            "article", "inproceedings", "proceedings", "book", "incollection",
+            "phdthesis", "mastersthesis", "www", "person", "data").stream()
+            .map(tag -> tag.getBytes(StandardCharsets.US_ASCII)).toList();
+
+    interface RecordHandler {
+        void record(String tag, String key, String mdate, long start, long end) throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final long firstRecord;
+    private final long rootEnd;
+
+    public RawRecordScanner(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        this.firstRecord = ParallelRecordReader.findRecordStart(channel, 0, size);
+        this.rootEnd = ParallelRecordReader.findRootEnd(channel, firstRecord, size);
+    }
+
+    /**
+     * Returns the offset of the first record, i.e., the length of the prolog
+     * with the XML declaration, the doctype and the root start tag.
+     */
+    public long getFirstRecord() {
+        return firstRecord;
+    }
+
+    public void scan(RecordHandler handler) throws IOException {
+        String tag = null;
+        String key = null;
+        String mdate = null;
+        long start = -1;
+        // Line breaks are looked for from one byte before the first record
+        for (long segment = firstRecord - 1; segment < rootEnd; segment += SEGMENT_SIZE) {
+            long segmentEnd = Math.min(segment + SEGMENT_SIZE, rootEnd);
+            long mapEnd = Math.min(segmentEnd + MAX_START_TAG_LENGTH, rootEnd);
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, segment, mapEnd - segment);
+            int limit = (int) (segmentEnd - segment);
+            for (int i = 0; i < limit; i++) {
+                if (bytes.get(i) != '\n' || i + 1 >= bytes.limit() || bytes.get(i + 1) != '<') {
+                    continue;
+                }
+                byte[] recordTag = recordTagAt(bytes, i + 2);
+                if (recordTag == null) {
+                    continue;
+                }
+                if (tag != null) {
+                    handler.record(tag, key, mdate, start, segment + i + 1);
+                }
+                tag = new String(recordTag, StandardCharsets.US_ASCII);
+                start = segment + i + 1;
+                String startTag = startTagAt(bytes, i + 2 + recordTag.length, start);
+                key = attribute(startTag, "key");
+                mdate = attribute(startTag, "mdate");
+            }
+        }
+        if (tag != null) {
+            handler.record(tag, key, mdate, start, rootEnd);
+        }
+    }
+
+    private static byte[] recordTagAt(MappedByteBuffer bytes, int position) {
+        for (byte[] tag : RECORD_TAGS) {
+            int end = position + tag.length;
+            if (end >= bytes.limit()) {
+                continue;
+            }
+            boolean matches = bytes.get(end) == ' ' || bytes.get(end) == '>';
+            for (int j = 0; matches && j < tag.length; j++) {
+                matches = bytes.get(position + j) == tag[j];
+            }
+            if (matches) {
+                return tag;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the attributes of a start tag, from {@code position} to its
+     * closing '>'.
+     */
+    private static String startTagAt(MappedByteBuffer bytes, int position, long start) throws IOException {
+        int end = position;
+        while (end < bytes.limit() && bytes.get(end) != '>') {
+            end++;
+        }
+        if (end == bytes.limit()) {
+            throw new IOException(String.format("Unterminated start tag of the record at byte %d", start));
+        }
+        byte[] attributes = new byte[end - position];
+        bytes.get(position, attributes);
+        return new String(attributes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String attribute(String startTag, String name) {
+        int at = startTag.indexOf(" " + name + "=\"");
+        if (at < 0) {
+            return null;
+        }
+        int from = at + name.length() + 3;
+        int to = startTag.indexOf('"', from);
+        return (to < 0) ? null : startTag.substring(from, to);
+    }
+}
@@ -0,0 +1,362 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import org.dblp.mmdb.Field;
+
+import com.google.common.hash.*;
+
+/**
+ * Binary snapshot of the publications of a DBLP XML file, written after a
+ * parse and memory-mapped on later runs instead of parsing the XML again.
+ * Records are decoded from the mapped file when asked for, so an open
+ * snapshot takes almost no heap. A snapshot is named after a hash of the XML
+ * and DTD files, the parser that read them and the format version, so neither
+ * a changed file nor a change in how records are read or written ever matches
+ * a stale snapshot. Only publications are kept; person records and the other
+ * indexes of Mmdb still come from parsing the XML, see
+ * {@link DblpRecords#getMmdb()}.
+ *
+ * <pre>
+ * header   magic, version
+ * records  tag, key, mdate, attributes, fields; none crosses a 1 GB segment
+ * offsets  long per record, in file order
+ * sorted   int per record, its index in key order
+ * names    tags and attribute names referenced by id from the records
+ * trailer  positions of offsets, sorted and names, number of records, magic
+ * </pre>
+ */
+@SuppressWarnings("javadoc")
+class RecordSnapshot {
+    private static final long MAGIC = 0x44424c50534e4150L; // "DBLPSNAP"
+    // Version 2 holds author, editor, venue and year values as Mmdb returns them
+    private static final int VERSION = 2;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int HEADER_SIZE = 12;
+    private static final int TRAILER_SIZE = 36;
+    private static final int NULL_STRING = -1;
+
+    private final ByteBuffer[] segments;
+    private final List<String> names;
+    private final int numRecords;
+    private final long offsetsPosition;
+    private final long sortedPosition;
+
+    private RecordSnapshot(ByteBuffer[] segments, List<String> names, int numRecords, long offsetsPosition,
+            long sortedPosition) {
+        this.segments = segments;
+        this.names = names;
+        this.numRecords = numRecords;
+        this.offsetsPosition = offsetsPosition;
+        this.sortedPosition = sortedPosition;
+    }
+
+    /**
+     * Returns the path of the snapshot of an XML file and its DTD, as read by
+     * the named parser, in a snapshot directory, hashing both files.
+     */
+    public static Path pathFor(Path snapshotDir, String parserName, String xmlFilename, String dtdFilename)
+            throws IOException {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putInt(VERSION);
+        hasher.putString(parserName, StandardCharsets.UTF_8);
+        hashFile(hasher, Paths.get(xmlFilename));
+        hashFile(hasher, Paths.get(dtdFilename));
+        return snapshotDir.resolve(hasher.hash() + ".snapshot");
+    }
+
+    private static void hashFile(Hasher hasher, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            hasher.putLong(size);
+            for (long position = 0; position < size; position += SEGMENT_SIZE) {
+                hasher.putBytes(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(SEGMENT_SIZE, size - position)));
+            }
+        }
+    }
+
+    /**
+     * Writes the records to a snapshot, replacing the file atomically once it
+     * is complete.
+     */
+    public static void write(Path path, Iterator<DblpRecord> records) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (SnapshotWriter writer = new SnapshotWriter(tmp)) {
+                while (records.hasNext()) {
+                    writer.add(records.next());
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public static RecordSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                throw new IOException("Truncated snapshot: " + path);
+            }
+            ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+            channel.read(trailer, size - TRAILER_SIZE);
+            if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION || trailer.getLong(28) != MAGIC) {
+                throw new IOException("Not a snapshot of version " + VERSION + ": " + path);
+            }
+            long offsetsPosition = trailer.getLong(0);
+            long sortedPosition = trailer.getLong(8);
+            long namesPosition = trailer.getLong(16);
+            int numRecords = trailer.getInt(24);
+
+            ByteBuffer namesBuffer = ByteBuffer.allocate((int) (size - TRAILER_SIZE - namesPosition));
+            channel.read(namesBuffer, namesPosition);
+            namesBuffer.flip();
+            List<String> names = new ArrayList<>();
+            for (int i = namesBuffer.getInt(); i > 0; i--) {
+                names.add(readString(namesBuffer));
+            }
+            return new RecordSnapshot(segments, names, numRecords, offsetsPosition, sortedPosition);
+        }
+    }
+
+    public int size() {
+        return numRecords;
+    }
+
+    /**
+     * Decodes the record at an index, in the order the records were written.
+     */
+    public DblpRecord get(int index) {
+        long offset = longAt(offsetsPosition + 8L * index);
+        ByteBuffer in = segments[segmentOf(offset)].duplicate();
+        in.position(positionOf(offset));
+
+        String tag = names.get(in.getShort());
+        String key = readString(in);
+        String mdate = readString(in);
+        Map<String, String> attributes = readAttributes(in);
+        int numFields = in.getInt();
+        List<Field> fields = new ArrayList<>(numFields);
+        for (int i = 0; i < numFields; i++) {
+            String fieldTag = names.get(in.getShort());
+            Map<String, String> fieldAttributes = readAttributes(in);
+            fields.add(new DblpRecord.RecordField(fieldTag, fieldAttributes, readString(in)));
+        }
+        return new DblpRecord(tag, key, mdate, attributes, fields);
+    }
+
+    public List<DblpRecord> asList() {
+        return new AbstractList<>() {
+            @Override
+            public DblpRecord get(int index) {
+                return RecordSnapshot.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return numRecords;
+            }
+        };
+    }
+
+    /**
+     * Looks a key up by binary search over the key order, decoding only the
+     * keys on the way.
+     */
+    public boolean containsKey(String key) {
+        int low = 0;
+        int high = numRecords - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int index = intAt(sortedPosition + 4L * mid);
+            int cmp = keyOf(index).compareTo(key);
+            if (cmp == 0) {
+                return true;
+            } else if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return false;
+    }
+
+    private String keyOf(int index) {
+        long offset = longAt(offsetsPosition + 8L * index);
+        ByteBuffer in = segments[segmentOf(offset)].duplicate();
+        in.position(positionOf(offset) + 2);
+        return readString(in);
+    }
+
+    private long longAt(long position) {
+        return segments[segmentOf(position)].getLong(positionOf(position));
+    }
+
+    private int intAt(long position) {
+        return segments[segmentOf(position)].getInt(positionOf(position));
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> SEGMENT_SHIFT);
+    }
+
+    private static int positionOf(long position) {
+        return (int) (position & (SEGMENT_SIZE - 1));
+    }
+
+    private Map<String, String> readAttributes(ByteBuffer in) {
+        int numAttributes = in.get();
+        if (numAttributes == 0) {
+            return Map.of();
+        }
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (int i = 0; i < numAttributes; i++) {
+            String name = names.get(in.getShort());
+            attributes.put(name, readString(in));
+        }
+        return attributes;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class SnapshotWriter implements Closeable {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(1 << 12);
+        private final DataOutputStream record = new DataOutputStream(recordBytes);
+        private final Map<String, Integer> nameIds = new LinkedHashMap<>();
+        private final List<Long> offsets = new ArrayList<>();
+        private final List<String> keys = new ArrayList<>();
+        private long position = 0;
+
+        SnapshotWriter(Path path) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            position = HEADER_SIZE;
+        }
+
+        void add(DblpRecord r) throws IOException {
+            recordBytes.reset();
+            record.writeShort(nameId(r.getTag()));
+            writeString(record, r.getKey());
+            writeString(record, r.getMdate());
+            writeAttributes(r.getAttributes());
+            Collection<Field> fields = r.getFields();
+            record.writeInt(fields.size());
+            for (Field f : fields) {
+                record.writeShort(nameId(f.tag()));
+                writeAttributes(f.getAttributes());
+                writeString(record, f.value());
+            }
+
+            // Keep every record within one mapped segment
+            long segmentEnd = (position | (SEGMENT_SIZE - 1)) + 1;
+            if (position + recordBytes.size() > segmentEnd) {
+                pad(segmentEnd - position);
+            }
+            offsets.add(position);
+            keys.add(r.getKey());
+            recordBytes.writeTo(out);
+            position += recordBytes.size();
+        }
+
+        private void writeAttributes(Map<String, String> attributes) throws IOException {
+            if (attributes.size() > Byte.MAX_VALUE) {
+                throw new IOException("Too many attributes to snapshot: " + attributes.keySet());
+            }
+            record.writeByte(attributes.size());
+            for (Map.Entry<String, String> a : attributes.entrySet()) {
+                record.writeShort(nameId(a.getKey()));
+                writeString(record, a.getValue());
+            }
+        }
+
+        private int nameId(String name) throws IOException {
+            Integer id = nameIds.get(name);
+            if (id == null) {
+                if (nameIds.size() > Short.MAX_VALUE) {
+                    throw new IOException("Too many distinct tags and attribute names to snapshot");
+                }
+                id = nameIds.size();
+                nameIds.put(name, id);
+            }
+            return id;
+        }
+
+        private void pad(long length) throws IOException {
+            for (long i = 0; i < length; i++) {
+                out.write(0);
+            }
+            position += length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                // Longs and ints are aligned so that none crosses a segment
+                pad((8 - position % 8) % 8);
+                long offsetsPosition = position;
+                for (long offset : offsets) {
+                    out.writeLong(offset);
+                }
+                position += 8L * offsets.size();
+
+                long sortedPosition = position;
+                Integer[] sorted = new Integer[keys.size()];
+                Arrays.setAll(sorted, i -> i);
+                Arrays.sort(sorted, Comparator.comparing(keys::get));
+                for (int index : sorted) {
+                    out.writeInt(index);
+                }
+                position += 4L * sorted.length;
+
+                long namesPosition = position;
+                out.writeInt(nameIds.size());
+                for (String name : nameIds.keySet()) {
+                    writeString(out, name);
+                }
+
+                out.writeLong(offsetsPosition);
+                out.writeLong(sortedPosition);
+                out.writeLong(namesPosition);
+                out.writeInt(offsets.size());
+                out.writeLong(MAGIC);
+            }
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(NULL_STRING);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
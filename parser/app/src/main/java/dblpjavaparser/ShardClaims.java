@@ -0,0 +1,128 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Hands out the shards of a {@link DataSplitter} output directory to any
+ * number of loader processes sharing the directory. A shard is claimed by an
+ * exclusive lock on {@code .claims/<shard>.lock}, which the operating system
+ * releases if the process dies, and marked complete by
+ * {@code .claims/<shard>.done}. Locks across machines need a file system with
+ * working POSIX locks, such as NFS with lockd.
+ */
+@SuppressWarnings("javadoc")
+class ShardClaims {
+    private static final String CLAIMS_DIRNAME = ".claims";
+    // Prolog of shards of DataSplitter records, which are UTF-8 with entities already resolved
+    private static final byte[] RECORD_PROLOG = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!DOCTYPE dblp SYSTEM \"dblp.dtd\">\n<dblp>\n").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EPILOG = "\n</dblp>\n".getBytes(StandardCharsets.US_ASCII);
+
+    class Claim implements AutoCloseable {
+        final ShardManifest.Shard shard;
+        private final FileChannel channel;
+        private final FileLock lock;
+
+        private Claim(ShardManifest.Shard shard, FileChannel channel, FileLock lock) {
+            this.shard = shard;
+            this.channel = channel;
+            this.lock = lock;
+        }
+
+        /**
+         * Opens the shard as an XML document of its records.
+         */
+        public InputStream open() throws IOException {
+            return new SequenceInputStream(Collections.enumeration(List.of(
+                    new ByteArrayInputStream(prolog),
+                    new BufferedInputStream(Files.newInputStream(shardDir.resolve(shard.name))),
+                    new ByteArrayInputStream(EPILOG))));
+        }
+
+        /**
+         * Marks the shard as loaded, so that no process claims it again.
+         */
+        public void complete(long numRecords) throws IOException {
+            Path done = doneMarker(shard);
+            Path tmp = done.resolveSibling(done.getFileName() + ".tmp");
+            Files.writeString(tmp, String.format("records=%d loader=%s completed=%s\n", numRecords,
+                    ManagementFactory.getRuntimeMXBean().getName(), Instant.now()));
+            Files.move(tmp, done, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                lock.release();
+            }
+        }
+    }
+
+    private final Path shardDir;
+    private final Path claimsDir;
+    private final byte[] prolog;
+    // Largest first, so that the last shards to be claimed are small ones
+    private final List<ShardManifest.Shard> shards;
+
+    public ShardClaims(Path shardDir) throws IOException {
+        this.shardDir = shardDir;
+        this.claimsDir = Files.createDirectories(shardDir.resolve(CLAIMS_DIRNAME));
+        // Raw shards come with the prolog of their XML file, in its encoding
+        Path prologPath = shardDir.resolve(DataSplitter.PROLOG_FILENAME);
+        this.prolog = Files.exists(prologPath) ? Files.readAllBytes(prologPath) : RECORD_PROLOG;
+        this.shards = new ArrayList<>(ShardManifest.read(shardDir.resolve(ShardManifest.FILENAME)).getShards());
+        shards.sort(Comparator.comparingLong((ShardManifest.Shard s) -> s.numBytes).reversed());
+    }
+
+    public int getNumShards() {
+        return shards.size();
+    }
+
+    public long getNumCompleted() {
+        return shards.stream().filter(s -> Files.exists(doneMarker(s))).count();
+    }
+
+    /**
+     * Claims the next shard that is neither complete nor claimed by another
+     * process, or returns null if there is none left.
+     */
+    public Claim claimNext() throws IOException {
+        for (ShardManifest.Shard s : shards) {
+            if (Files.exists(doneMarker(s))) {
+                continue;
+            }
+            Path lockPath = claimsDir.resolve(s.name + ".lock");
+            Files.createDirectories(lockPath.getParent());
+            FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            if (lock == null) {
+                channel.close();
+                continue;
+            }
+            // Another process may have completed the shard before we got the lock
+            if (Files.exists(doneMarker(s))) {
+                lock.release();
+                channel.close();
+                continue;
+            }
+            return new Claim(s, channel, lock);
+        }
+        return null;
+    }
+
+    private Path doneMarker(ShardManifest.Shard s) {
+        return claimsDir.resolve(s.name + ".done");
+    }
+}
@@ -0,0 +1,83 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Manifest of the shards written by {@link DataSplitter}: one tab-separated
+ * line per shard with its path relative to the manifest, its number of
+ * records, its size in bytes and the smallest and largest key in it.
+ */
+@SuppressWarnings("javadoc")
+class ShardManifest {
+    public static final String FILENAME = "manifest.tsv";
+    private static final String HEADER = "shard\trecords\tbytes\tmin_key\tmax_key";
+
+    static class Shard {
+        final String name;
+        long numRecords = 0;
+        long numBytes = 0;
+        String minKey = null;
+        String maxKey = null;
+
+        Shard(String name) {
+            this.name = name;
+        }
+
+        void add(String key, long bytes) {
+            numRecords++;
+            numBytes += bytes;
+            if (minKey == null || key.compareTo(minKey) < 0) {
+                minKey = key;
+            }
+            if (maxKey == null || key.compareTo(maxKey) > 0) {
+                maxKey = key;
+            }
+        }
+    }
+
+    private final Map<String, Shard> shards = new TreeMap<>();
+
+    public void add(String shard, String key, long bytes) {
+        shards.computeIfAbsent(shard, Shard::new).add(key, bytes);
+    }
+
+    public Collection<Shard> getShards() {
+        return shards.values();
+    }
+
+    public void write(Path path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.write('\n');
+            for (Shard s : shards.values()) {
+                out.write(String.join("\t", s.name, String.valueOf(s.numRecords), String.valueOf(s.numBytes),
+                        s.minKey, s.maxKey));
+                out.write('\n');
+            }
+        }
+    }
+
+    public static ShardManifest read(Path path) throws IOException {
+        ShardManifest manifest = new ShardManifest();
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+            throw new IOException("Not a shard manifest: " + path);
+        }
+        for (String line : lines.subList(1, lines.size())) {
+            String[] columns = line.split("\t");
+            if (columns.length != 5) {
+                throw new IOException(String.format("Malformed line in %s: %s", path, line));
+            }
+            Shard s = new Shard(columns[0]);
+            s.numRecords = Long.parseLong(columns[1]);
+            s.numBytes = Long.parseLong(columns[2]);
+            s.minKey = columns[3];
+            s.maxKey = columns[4];
+            manifest.shards.put(s.name, s);
+        }
+        return manifest;
+    }
+}
@@ -0,0 +1,270 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Partitions records into output files in a single streaming pass. Records are
+ * appended to one spill file per partition as they arrive; {@link #finish}
+ * then sorts every partition by key on its own, in parallel, and writes one
+ * record per line. A partition larger than its share of the memory budget is
+ * sorted externally, in sorted runs that are merged.
+ */
+@SuppressWarnings("javadoc")
+class SpillPartitioner implements AutoCloseable {
+    // Spill entries are "key TAB xml NUL", since NUL cannot occur in XML but newlines can
+    private static final char KEY_SEPARATOR = '\t';
+    private static final char ENTRY_END = '\0';
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private static class Entry implements Comparable<Entry> {
+        final String key;
+        final String xml;
+
+        Entry(String key, String xml) {
+            this.key = key;
+            this.xml = xml;
+        }
+
+        long sizeInBytes() {
+            // Rough heap footprint of both strings and the object
+            return 2L * (key.length() + xml.length()) + 96;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return key.compareTo(other.key);
+        }
+    }
+
+    private static class EntryReader implements Closeable {
+        private final Reader in;
+        private final char[] buffer = new char[READ_BUFFER_SIZE];
+        private int position = 0;
+        private int limit = 0;
+
+        EntryReader(Path path) throws IOException {
+            in = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8);
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+        /**
+         * Returns the next entry, or null at the end of the file.
+         */
+        Entry next() throws IOException {
+            StringBuilder key = new StringBuilder();
+            int c;
+            while ((c = read()) != KEY_SEPARATOR) {
+                if (c < 0) {
+                    return null;
+                }
+                key.append((char) c);
+            }
+            StringBuilder xml = new StringBuilder(256);
+            while ((c = read()) != ENTRY_END) {
+                if (c < 0) {
+                    throw new EOFException("Truncated spill entry for " + key);
+                }
+                xml.append((char) c);
+            }
+            return new Entry(key.toString(), xml.toString());
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private final Path spillDir;
+    private final WriterCache spills;
+    private final Set<String> partitions = new TreeSet<>();
+    private long numRecords = 0;
+
+    /**
+     * Spills into a new directory under {@code workDir}, so that spill files
+     * left behind by a crashed run are never appended to.
+     */
+    public SpillPartitioner(Path workDir, int maxOpenFiles) throws IOException {
+        this.spillDir = Files.createTempDirectory(Files.createDirectories(workDir), ".spill");
+        this.spills = new WriterCache(maxOpenFiles);
+    }
+
+    /**
+     * Appends a record to the spill file of a partition, given as a path
+     * relative to the output directory.
+     */
+    public void add(String partition, String key, String xml) throws IOException {
+        Writer writer = spills.get(spillDir.resolve(partition));
+        writer.write(key);
+        writer.write(KEY_SEPARATOR);
+        writer.write(xml);
+        writer.write(ENTRY_END);
+        partitions.add(partition);
+        numRecords++;
+    }
+
+    public long getNumRecords() {
+        return numRecords;
+    }
+
+    public int getNumPartitions() {
+        return partitions.size();
+    }
+
+    /**
+     * Sorts every partition by key on {@code numThreads} threads, each with
+     * an equal share of {@code memoryBudget} bytes, and writes it to the
+     * output directory. Returns the number of partitions sorted externally.
+     */
+    public int finish(Path outputDir, int numThreads, long memoryBudget) throws IOException {
+        spills.close();
+        long budgetPerThread = Math.max(memoryBudget / numThreads, 1 << 20);
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            List<Callable<Boolean>> tasks = partitions.stream()
+                    .map(p -> (Callable<Boolean>) () -> sortPartition(spillDir.resolve(p), outputDir.resolve(p),
+                            budgetPerThread))
+                    .toList();
+            int numExternal = 0;
+            for (Future<Boolean> f : pool.invokeAll(tasks)) {
+                numExternal += f.get() ? 1 : 0;
+            }
+            return numExternal;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof RuntimeException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static boolean sortPartition(Path spill, Path output, long budget) throws IOException {
+        Files.createDirectories(output.getParent());
+        List<Path> runs = new ArrayList<>();
+        try (EntryReader in = new EntryReader(spill)) {
+            List<Entry> entries = new ArrayList<>();
+            long size = 0;
+            Entry entry;
+            while ((entry = in.next()) != null) {
+                entries.add(entry);
+                size += entry.sizeInBytes();
+                if (size >= budget) {
+                    runs.add(writeRun(spill, runs.size(), entries));
+                    entries.clear();
+                    size = 0;
+                }
+            }
+            if (runs.isEmpty()) {
+                Collections.sort(entries);
+                try (Writer out = writer(output)) {
+                    for (Entry e : entries) {
+                        out.write(e.xml);
+                        out.write('\n');
+                    }
+                }
+                return false;
+            }
+            if (!entries.isEmpty()) {
+                runs.add(writeRun(spill, runs.size(), entries));
+            }
+        } finally {
+            Files.delete(spill);
+        }
+
+        mergeRuns(runs, output);
+        return true;
+    }
+
+    private static Path writeRun(Path spill, int index, List<Entry> entries) throws IOException {
+        Collections.sort(entries);
+        Path run = spill.resolveSibling(spill.getFileName() + ".run" + index);
+        try (Writer out = writer(run)) {
+            for (Entry e : entries) {
+                out.write(e.key);
+                out.write(KEY_SEPARATOR);
+                out.write(e.xml);
+                out.write(ENTRY_END);
+            }
+        }
+        return run;
+    }
+
+    private static void mergeRuns(List<Path> runs, Path output) throws IOException {
+        List<EntryReader> readers = new ArrayList<>();
+        try (Writer out = writer(output)) {
+            // Heads of the runs, ordered by key and then by run index
+            PriorityQueue<Map.Entry<Entry, Integer>> heads = new PriorityQueue<>(
+                    Map.Entry.<Entry, Integer>comparingByKey().thenComparing(Map.Entry.comparingByValue()));
+            for (Path run : runs) {
+                EntryReader in = new EntryReader(run);
+                readers.add(in);
+                Entry head = in.next();
+                if (head != null) {
+                    heads.add(Map.entry(head, readers.size() - 1));
+                }
+            }
+            while (!heads.isEmpty()) {
+                Map.Entry<Entry, Integer> head = heads.poll();
+                out.write(head.getKey().xml);
+                out.write('\n');
+                Entry next = readers.get(head.getValue()).next();
+                if (next != null) {
+                    heads.add(Map.entry(next, head.getValue()));
+                }
+            }
+        } finally {
+            for (EntryReader in : readers) {
+                in.close();
+            }
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    private static Writer writer(Path path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8),
+                READ_BUFFER_SIZE);
+    }
+
+    /**
+     * Deletes the spill directory, which is empty after {@link #finish}.
+     */
+    @Override
+    public void close() throws IOException {
+        spills.close();
+        if (Files.exists(spillDir)) {
+            try (Stream<Path> paths = Files.walk(spillDir)) {
+                for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(p);
+                }
+            }
+        }
+    }
+}
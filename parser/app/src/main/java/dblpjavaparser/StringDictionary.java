@@ -0,0 +1,211 @@
+package dblpjavaparser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Dictionary assigning dense int ids to strings such as author names and
+ * publication keys, with the strings stored off the heap as UTF-8 in direct
+ * buffers. Lookups encode and hash the characters into a reused buffer, so no
+ * String is created; a String is only decoded when {@link #get} asks for it.
+ * The heap then holds ints instead of millions of small strings for the
+ * garbage collector to scan.
+ */
+@SuppressWarnings("javadoc")
+class StringDictionary {
+    // Chunks double in size from the first to the largest
+    private static final int FIRST_CHUNK_SIZE = 1 << 16;
+    private static final int MAX_CHUNK_SIZE = 1 << 24;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    // UTF-8 bytes of the strings, each after its length as an int; no string crosses a chunk
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    // Per id, the chunk of its string in the upper and its position in the lower 32 bits
+    private ByteBuffer entries;
+    // Per id, the hash of its string
+    private ByteBuffer hashes;
+    // Open addressing table of id + 1 per slot, or 0 if the slot is free
+    private ByteBuffer slots;
+    private int numSlots;
+    private int size = 0;
+    private byte[] scratch = new byte[256];
+    private int scratchLength;
+
+    public StringDictionary() {
+        entries = ByteBuffer.allocateDirect(INITIAL_CAPACITY * Long.BYTES);
+        hashes = ByteBuffer.allocateDirect(INITIAL_CAPACITY * Integer.BYTES);
+        numSlots = INITIAL_CAPACITY * 2;
+        slots = ByteBuffer.allocateDirect(numSlots * Integer.BYTES);
+        chunks.add(ByteBuffer.allocateDirect(FIRST_CHUNK_SIZE));
+    }
+
+    /**
+     * Returns the id of a string, adding it if it is new.
+     */
+    public synchronized int idOf(CharSequence s) {
+        encode(s);
+        int hash = hash(scratch, scratchLength);
+        int slot = findSlot(hash);
+        int id = slots.getInt(slot * Integer.BYTES) - 1;
+        if (id >= 0) {
+            return id;
+        }
+        id = append(hash);
+        slots.putInt(slot * Integer.BYTES, id + 1);
+        if (size * 2 > numSlots) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of a string, or -1 if it is not in the dictionary.
+     */
+    public synchronized int find(CharSequence s) {
+        encode(s);
+        int slot = findSlot(hash(scratch, scratchLength));
+        return slots.getInt(slot * Integer.BYTES) - 1;
+    }
+
+    public synchronized String get(int id) {
+        Objects.checkIndex(id, size);
+        long entry = entries.getLong(id * Long.BYTES);
+        ByteBuffer chunk = chunks.get((int) (entry >>> 32)).duplicate();
+        chunk.position((int) entry);
+        byte[] bytes = new byte[chunk.getInt()];
+        chunk.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getOffHeapBytes() {
+        return chunks.stream().mapToLong(ByteBuffer::capacity).sum() + entries.capacity() + hashes.capacity()
+                + slots.capacity();
+    }
+
+    /**
+     * Returns the slot holding the string in the scratch buffer, or the free
+     * slot where it belongs.
+     */
+    private int findSlot(int hash) {
+        int mask = numSlots - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            int id = slots.getInt(slot * Integer.BYTES) - 1;
+            if (id < 0 || (hashes.getInt(id * Integer.BYTES) == hash && scratchEquals(id))) {
+                return slot;
+            }
+        }
+    }
+
+    private boolean scratchEquals(int id) {
+        long entry = entries.getLong(id * Long.BYTES);
+        ByteBuffer chunk = chunks.get((int) (entry >>> 32));
+        int position = (int) entry;
+        if (chunk.getInt(position) != scratchLength) {
+            return false;
+        }
+        for (int i = 0; i < scratchLength; i++) {
+            if (chunk.get(position + Integer.BYTES + i) != scratch[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int append(int hash) {
+        ByteBuffer chunk = chunks.get(chunks.size() - 1);
+        int length = Integer.BYTES + scratchLength;
+        if (chunk.remaining() < length) {
+            chunk = ByteBuffer.allocateDirect(Math.max(Math.min(chunk.capacity() * 2, MAX_CHUNK_SIZE), length));
+            chunks.add(chunk);
+        }
+        if (size * Long.BYTES == entries.capacity()) {
+            entries = grow(entries);
+            hashes = grow(hashes);
+        }
+        int id = size++;
+        entries.putLong(id * Long.BYTES, ((long) (chunks.size() - 1) << 32) | chunk.position());
+        hashes.putInt(id * Integer.BYTES, hash);
+        chunk.putInt(scratchLength);
+        chunk.put(scratch, 0, scratchLength);
+        return id;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+        grown.put(buffer.duplicate().clear());
+        return grown.clear();
+    }
+
+    private void rehash() {
+        numSlots *= 2;
+        slots = ByteBuffer.allocateDirect(numSlots * Integer.BYTES);
+        int mask = numSlots - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes.getInt(id * Integer.BYTES) & mask;
+            while (slots.getInt(slot * Integer.BYTES) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots.putInt(slot * Integer.BYTES, id + 1);
+        }
+    }
+
+    /**
+     * Encodes the characters as UTF-8 into the scratch buffer.
+     */
+    private void encode(CharSequence s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (length + 4 > scratch.length) {
+                scratch = Arrays.copyOf(scratch, scratch.length * 2);
+            }
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                scratch[length++] = (byte) c;
+            } else if (c < 0x800) {
+                scratch[length++] = (byte) (0xc0 | (c >> 6));
+                scratch[length++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                scratch[length++] = (byte) (0xf0 | (codePoint >> 18));
+                scratch[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                scratch[length++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                // Unpaired surrogates become '?', as in String.getBytes
+                if (Character.isSurrogate(c)) {
+                    c = '?';
+                }
+                if (c < 0x80) {
+                    scratch[length++] = (byte) c;
+                } else {
+                    scratch[length++] = (byte) (0xe0 | (c >> 12));
+                    scratch[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    scratch[length++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+        }
+        scratchLength = length;
+    }
+
+    /**
+     * FNV-1a over the bytes, with the final mix of MurmurHash3 so that the low
+     * bits used for slots are well distributed.
+     */
+    private static int hash(byte[] bytes, int length) {
+        int h = 0x811c9dc5;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ bytes[i]) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+}
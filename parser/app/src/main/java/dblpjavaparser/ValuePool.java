@@ -0,0 +1,35 @@
+package dblpjavaparser;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Pool of field values that recur across many records, such as author names,
+ * venues and cited keys, so that records held in memory share one copy of
+ * each. Values of other fields, such as titles, are rarely repeated and not
+ * pooled. Safe for use by several parsing threads.
+ */
+@SuppressWarnings("javadoc")
+class ValuePool {
+    private static final Set<String> SHARED_TAGS = Set.of(
+            "author", "editor", "journal", "booktitle", "publisher", "series", "school",
+            "year", "volume", "number", "month", "crossref", "cite");
+
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+
+    public static boolean isShared(String fieldTag) {
+        return SHARED_TAGS.contains(fieldTag);
+    }
+
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = values.putIfAbsent(value, value);
+        return (pooled != null) ? pooled : value;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
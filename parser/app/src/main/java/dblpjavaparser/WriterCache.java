@@ -0,0 +1,27 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * LRU cache of buffered UTF-8 writers appending to files, so that writing many
+ * small records to many files does not open and close a file per record. A
+ * writer is flushed and closed when it is evicted and reopened in append mode
+ * if needed again; only its first open truncates the file.
+ */
+@SuppressWarnings("javadoc")
+class WriterCache extends FileCache<Writer> {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public WriterCache(int maxOpenFiles) {
+        super(maxOpenFiles);
+    }
+
+    @Override
+    protected Writer open(Path path, boolean truncate) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, truncate ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND),
+                StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+}
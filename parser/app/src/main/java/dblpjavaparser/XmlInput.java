@@ -0,0 +1,120 @@
+package dblpjavaparser;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+/**
+ * Opens DBLP XML files that may be compressed with gzip ({@code .gz}) or
+ * Zstandard ({@code .zst}). Compressed files are decompressed on a separate
+ * thread, which stays at most {@code CHUNK_QUEUE_CAPACITY} chunks ahead of the
+ * parser.
+ */
+@SuppressWarnings("javadoc")
+class XmlInput {
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int CHUNK_QUEUE_CAPACITY = 16;
+    private static final int FILE_BUFFER_SIZE = 1 << 16;
+
+    static boolean isCompressed(String filename) {
+        return filename.endsWith(".gz") || filename.endsWith(".zst");
+    }
+
+    public static InputStream open(String filename) throws IOException {
+        InputStream file = new BufferedInputStream(new FileInputStream(filename), FILE_BUFFER_SIZE);
+        try {
+            if (filename.endsWith(".gz")) {
+                // GZIPInputStream also reads concatenated multi-member files
+                return new DecompressingInputStream(new GZIPInputStream(file, FILE_BUFFER_SIZE), filename);
+            } else if (filename.endsWith(".zst")) {
+                return new DecompressingInputStream(new ZstdInputStream(file), filename);
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        return file;
+    }
+
+    private static class DecompressingInputStream extends InputStream {
+        private static final byte[] END_OF_INPUT = new byte[0];
+
+        private final String filename;
+        private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(CHUNK_QUEUE_CAPACITY);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Thread producer;
+        private byte[] chunk = null;
+        private int position = 0;
+
+        DecompressingInputStream(InputStream decompressed, String filename) {
+            this.filename = filename;
+            producer = new Thread(() -> {
+                try (InputStream in = decompressed) {
+                    byte[] buffer;
+                    while ((buffer = in.readNBytes(CHUNK_SIZE)).length > 0) {
+                        chunks.put(buffer);
+                    }
+                } catch (InterruptedException e) {
+                    // the reader has gone away, so the end below is not waited for
+                    Thread.currentThread().interrupt();
+                } catch (Throwable e) {
+                    failure.set(e);
+                } finally {
+                    try {
+                        chunks.put(END_OF_INPUT);
+                    } catch (InterruptedException e) {
+                        // the reader has gone away
+                    }
+                }
+            }, "xml-decompressor");
+            producer.setDaemon(true);
+            producer.start();
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (chunk != END_OF_INPUT && (chunk == null || position == chunk.length)) {
+                try {
+                    chunk = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                position = 0;
+            }
+            if (chunk == END_OF_INPUT) {
+                if (failure.get() != null) {
+                    throw new IOException("Failed to decompress " + filename, failure.get());
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return nextChunk() ? (chunk[position++] & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int n = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            producer.interrupt();
+        }
+    }
+}